@@ -0,0 +1,119 @@
+import java.nio.file.Path;
+import org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.parallel.ResourceAccessMode;
+import org.junit.jupiter.api.parallel.ResourceLock;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * JUnit tests for searching a whole query file as a batch with the {@value #BATCH} flag, where
+ * every unique stem or prefix in the query file is looked up in the index only once and the
+ * results of each query are assembled from those lookups. The output must be exactly the same as
+ * searching each query on its own, so the same expected files are used.
+ *
+ * The letters query file is the most interesting case for partial search, since many of its lines
+ * share the same short prefixes.
+ *
+ * @author CS 212 Software Development
+ * @author University of San Francisco
+ * @version Spring 2020
+ * @see BenchmarkTest#benchmarkBatch(String, boolean, boolean)
+ */
+@TestMethodOrder(OrderAnnotation.class)
+@ResourceLock(value = TestUtilities.RUNTIME_LOCK, mode = ResourceAccessMode.READ)
+public class BatchOutputTest {
+
+  /** The flag used to search the query file as a batch. */
+  public static final String BATCH = "-batch";
+
+  /**
+   * Searches the query file as a batch and tests the search output. Designed to be used inside a
+   * JUnit test.
+   *
+   * @param subdir the output subdirectory to use
+   * @param input the input path to use
+   * @param query the query file to use for search
+   * @param exact whether to perform exact or partial search
+   * @param threads the number of worker threads to use, or 0 for none
+   */
+  public static void test(String subdir, Path input, String query, boolean exact, int threads) {
+    String type = exact ? "exact" : "partial";
+    String filename = TestUtilities.outputFileName("search-" + type, input);
+
+    Path actual = TestUtilities.ACTUAL_PATH.resolve("batch-" + threads + "-" + filename);
+    Path expected = TestUtilities.EXPECTED_PATH.resolve(subdir).resolve(filename).normalize();
+
+    String[] args = {"-path", input.normalize().toString(), "-query",
+        TestUtilities.QUERY_INPUT.resolve(query).toString(), "-results",
+        actual.normalize().toString(), BATCH, exact ? "-exact" : "",
+        threads > 0 ? "-threads" : "", threads > 0 ? Integer.toString(threads) : ""};
+
+    TestUtilities.checkOutput(args, actual.normalize(), expected);
+  }
+
+  /**
+   * Tests the batch search output for the simple subdirectory.
+   *
+   * @param exact whether to perform exact or partial search
+   */
+  @Order(1)
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  public void testSimple(boolean exact) {
+    test(exact ? "search-exact" : "search-partial", TestUtilities.TEXT_INPUT.resolve("simple"),
+        "simple.txt", exact, 0);
+  }
+
+  /**
+   * Tests the batch search output for the stemmer subdirectory, where many different words share
+   * the same stems.
+   *
+   * @param exact whether to perform exact or partial search
+   */
+  @Order(2)
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  public void testStemmer(boolean exact) {
+    test(exact ? "search-exact" : "search-partial", TestUtilities.TEXT_INPUT.resolve("stemmer"),
+        "letters.txt", exact, 0);
+  }
+
+  /**
+   * Tests the batch search output for the rfcs subdirectory with the letters query file.
+   *
+   * @param exact whether to perform exact or partial search
+   */
+  @Order(3)
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  public void testRfcs(boolean exact) {
+    test(exact ? "search-exact" : "search-partial", TestUtilities.TEXT_INPUT.resolve("rfcs"),
+        "letters.txt", exact, 0);
+  }
+
+  /**
+   * Tests the batch partial search output for the entire input directory with worker threads.
+   *
+   * @param threads the number of worker threads to use
+   */
+  @Order(4)
+  @ParameterizedTest
+  @ValueSource(ints = {1, 3})
+  public void testTextPartial(int threads) {
+    test("search-partial", TestUtilities.TEXT_INPUT, "complex.txt", false, threads);
+  }
+
+  /**
+   * Tests the batch exact search output for the entire input directory with worker threads.
+   *
+   * @param threads the number of worker threads to use
+   */
+  @Order(5)
+  @ParameterizedTest
+  @ValueSource(ints = {1, 3})
+  public void testTextExact(int threads) {
+    test("search-exact", TestUtilities.TEXT_INPUT, "complex.txt", true, threads);
+  }
+}
@@ -0,0 +1,427 @@
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.parallel.ResourceLock;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Benchmarks for the index building, partial search, exact search, and JSON output of
+ * {@link Driver} across 1 to {@link #MAX_THREADS} worker threads. Unlike {@link ThreadRuntimeTest},
+ * these never fail because of timing. Instead, each benchmark reports percentiles, error bars, and
+ * the allocation rate so that any speedup claims can be reproduced.
+ *
+ * The search benchmarks include the time to build the index, so subtract the build benchmark with
+ * the same number of threads to estimate the search time alone. The same goes for the output
+ * benchmark, which builds, searches, and writes both the index and search results.
+ *
+ * The memory benchmarks build and search larger inputs, the guten subdirectory and a 50 page crawl
+ * of the Java documentation if the "crawl.snapshot" property is set, where the size of the posting
+ * lists dominates the peak retained heap use.
+ *
+ * The top benchmarks search the same larger inputs with the letters query file, once keeping
+ * every result and once keeping only the first {@link #TOP} results of each query, to compare
+ * sorting every result to selecting only the top results.
+ *
+ * The batch benchmarks search a saved index of the text input, so that the time is mostly spent
+ * searching, and report the throughput in query lines per second with and without the
+ * {@value BatchOutputTest#BATCH} flag.
+ *
+ * The prefix benchmarks partially search a saved index of the guten subdirectory for a single
+ * query line with the one letter {@link #PREFIX}, which matches a large part of the words in the
+ * index. Since there is only one query, any speedup with more threads has to come from splitting
+ * that one query across the workers.
+ *
+ * The summary is also written to {@link #SUMMARY}. To measure a change to how the index is stored,
+ * keep a copy of the summary from before the change and pass it as the "benchmark.baseline"
+ * property. The time and peak retained heap use are then reported relative to that baseline.
+ *
+ * WARNING: These benchmarks take considerable time and should not be run unless absolutely
+ * necessary.
+ *
+ * @author CS 212 Software Development
+ * @author University of San Francisco
+ * @version Spring 2020
+ */
+@TestMethodOrder(OrderAnnotation.class)
+@ResourceLock(TestUtilities.RUNTIME_LOCK)
+public class BenchmarkTest {
+
+  /** The maximum number of threads to benchmark, overridden by the "benchmark.threads" property. */
+  public static final int MAX_THREADS =
+      Integer.getInteger("benchmark.threads", Runtime.getRuntime().availableProcessors());
+
+  /** The query file to use for the output and memory benchmarks. */
+  public static final Path QUERY = TestUtilities.QUERY_INPUT.resolve("complex.txt");
+
+  /**
+   * The query files to use for the search benchmarks. The letters file is mostly one and two
+   * letter prefixes, so partial search with it depends on how quickly a prefix is found in the
+   * words of the index.
+   */
+  public static final List<String> QUERIES = List.of("complex.txt", "letters.txt");
+
+  /** The one letter query used for the prefix benchmarks. */
+  public static final String PREFIX = "a";
+
+  /** The start of the documentation crawl used for the memory benchmarks. */
+  public static final String DOCS =
+      "https://www.cs.usfca.edu/~cs212/docs/jdk-13.0.2_doc-all/api/allclasses-index.html";
+
+  /** The number of results per query to keep for the top benchmarks. */
+  public static final int TOP = 10;
+
+  /** Where to write the summary of every benchmark. */
+  public static final Path SUMMARY = TestUtilities.ACTUAL_PATH.resolve("benchmark-summary.csv");
+
+  /** A previous summary to compare against, set by the "benchmark.baseline" property. */
+  public static final String BASELINE = System.getProperty("benchmark.baseline");
+
+  /** The results of every benchmark run so far, reported after all benchmarks finish. */
+  private static final List<Benchmarker.Result> results = new ArrayList<>();
+
+  /** The saved index of the text input used by the batch benchmarks. */
+  private static Path savedText;
+
+  /** The saved index of the guten subdirectory used by the prefix benchmarks. */
+  private static Path savedGuten;
+
+  /** The query file with only the {@link #PREFIX} query used by the prefix benchmarks. */
+  private static Path prefixQuery;
+
+  /**
+   * Makes sure the expected environment is setup before running any benchmarks.
+   */
+  @BeforeAll
+  public static void testEnvironment() {
+    assertTrue(TestUtilities.isEnvironmentSetup());
+  }
+
+  /**
+   * Saves the index of the text input the first time a batch benchmark needs it, so that saving is
+   * not part of any benchmark and only the batch benchmarks depend on saving and loading.
+   *
+   * @return the saved index of the text input
+   */
+  private static synchronized Path savedText() {
+    if (savedText == null) {
+      savedText = PersistenceOutputTest.save(TestUtilities.TEXT_INPUT, "benchmark-text.json");
+    }
+
+    return savedText;
+  }
+
+  /**
+   * Saves the index of the guten subdirectory and writes the {@link #PREFIX} query file the first
+   * time a prefix benchmark needs them, so that only the prefix benchmarks depend on saving and
+   * loading.
+   *
+   * @throws IOException if unable to write the prefix query file
+   */
+  private static synchronized void savePrefix() throws IOException {
+    if (savedGuten == null) {
+      Path query = TestUtilities.ACTUAL_PATH.resolve("prefix-" + PREFIX + ".txt");
+      Files.writeString(query, PREFIX + System.lineSeparator(), StandardCharsets.UTF_8);
+
+      prefixQuery = query;
+      savedGuten = PersistenceOutputTest.save(TestUtilities.TEXT_INPUT.resolve("guten"),
+          "benchmark-guten.json");
+    }
+  }
+
+  /**
+   * Prints and writes a summary of every benchmark, and compares it to the baseline if provided.
+   *
+   * @throws IOException if unable to write the summary or read the baseline
+   */
+  @AfterAll
+  public static void printSummary() throws IOException {
+    Benchmarker.print(results);
+    Benchmarker.write(results, SUMMARY);
+
+    if (BASELINE != null) {
+      Benchmarker.compare(results, Path.of(BASELINE));
+    }
+  }
+
+  /**
+   * Provides the number of threads to benchmark.
+   *
+   * @return the number of threads from 1 to {@link #MAX_THREADS}
+   */
+  public static IntStream threads() {
+    return IntStream.rangeClosed(1, MAX_THREADS);
+  }
+
+  /**
+   * Provides the query files and number of threads for the search benchmarks.
+   *
+   * @return every query file in {@link #QUERIES} with 1 to {@link #MAX_THREADS} threads
+   */
+  public static Stream<Arguments> searches() {
+    return QUERIES.stream()
+        .flatMap(query -> threads().mapToObj(threads -> Arguments.of(query, threads)));
+  }
+
+  /**
+   * Benchmarks building the index for the text input.
+   *
+   * @param threads the number of worker threads to use
+   */
+  @Order(1)
+  @ParameterizedTest(name = "{0} thread(s)")
+  @MethodSource("threads")
+  public void benchmarkBuild(int threads) {
+    String[] args = {
+        "-path", TestUtilities.TEXT_INPUT.toString(),
+        "-threads", Integer.toString(threads)};
+
+    benchmark("build", threads, args);
+  }
+
+  /**
+   * Benchmarks building the index and partial search for the text input.
+   *
+   * @param query the query file to use
+   * @param threads the number of worker threads to use
+   */
+  @Order(2)
+  @ParameterizedTest(name = "{0} {1} thread(s)")
+  @MethodSource("searches")
+  public void benchmarkPartialSearch(String query, int threads) {
+    String[] args = {
+        "-path", TestUtilities.TEXT_INPUT.toString(),
+        "-query", TestUtilities.QUERY_INPUT.resolve(query).toString(),
+        "-threads", Integer.toString(threads)};
+
+    benchmark("search-partial-" + query.replace(".txt", ""), threads, args);
+  }
+
+  /**
+   * Benchmarks building the index and exact search for the text input.
+   *
+   * @param query the query file to use
+   * @param threads the number of worker threads to use
+   */
+  @Order(3)
+  @ParameterizedTest(name = "{0} {1} thread(s)")
+  @MethodSource("searches")
+  public void benchmarkExactSearch(String query, int threads) {
+    String[] args = {
+        "-path", TestUtilities.TEXT_INPUT.toString(),
+        "-query", TestUtilities.QUERY_INPUT.resolve(query).toString(),
+        "-exact",
+        "-threads", Integer.toString(threads)};
+
+    benchmark("search-exact-" + query.replace(".txt", ""), threads, args);
+  }
+
+  /**
+   * Benchmarks building the index, partial search, and writing the index and search results as
+   * JSON for the text input.
+   *
+   * @param threads the number of worker threads to use
+   */
+  @Order(4)
+  @ParameterizedTest(name = "{0} thread(s)")
+  @MethodSource("threads")
+  public void benchmarkOutput(int threads) {
+    String[] args = {
+        "-path", TestUtilities.TEXT_INPUT.toString(),
+        "-query", QUERY.toString(),
+        "-index", TestUtilities.ACTUAL_PATH.resolve("benchmark-index.json").toString(),
+        "-results", TestUtilities.ACTUAL_PATH.resolve("benchmark-results.json").toString(),
+        "-threads", Integer.toString(threads)};
+
+    benchmark("output", threads, args);
+  }
+
+  /**
+   * Provides the inputs for the memory benchmarks.
+   *
+   * @return the name of each input, the arguments to build its index, and whether to use exact
+   *   search
+   * @see LocalWebServer
+   */
+  public static Stream<Arguments> memoryInputs() {
+    List<Arguments> inputs = new ArrayList<>();
+    String[] guten = {"-path", TestUtilities.TEXT_INPUT.resolve("guten").toString()};
+
+    inputs.add(Arguments.of("guten", guten, false));
+    inputs.add(Arguments.of("guten", guten, true));
+
+    if (LocalWebServer.isEnabled()) {
+      String[] docs = {"-url", LocalWebServer.link(DOCS), "-limit", Integer.toString(50)};
+      inputs.add(Arguments.of("docs", docs, false));
+      inputs.add(Arguments.of("docs", docs, true));
+    }
+
+    return inputs.stream();
+  }
+
+  /**
+   * Benchmarks building the index and searching larger inputs with the maximum number of threads,
+   * mainly to compare the peak retained heap use.
+   *
+   * @param name the name of the input
+   * @param source the arguments to build the index
+   * @param exact whether to use exact search
+   */
+  @Order(5)
+  @ParameterizedTest(name = "{0} exact={2}")
+  @MethodSource("memoryInputs")
+  public void benchmarkMemory(String name, String[] source, boolean exact) {
+    List<String> args = new ArrayList<>(List.of(source));
+    args.addAll(List.of("-query", QUERY.toString(), "-threads", Integer.toString(MAX_THREADS)));
+
+    if (exact) {
+      args.add("-exact");
+    }
+
+    String type = exact ? "exact" : "partial";
+    benchmark("memory-" + name + "-" + type, MAX_THREADS, args.toArray(String[]::new));
+  }
+
+  /**
+   * Provides the inputs for the top benchmarks.
+   *
+   * @return the name of each memory input, the arguments to build its index, whether to use exact
+   *   search, and the number of results to keep per query (or 0 to keep every result)
+   * @see #memoryInputs()
+   */
+  public static Stream<Arguments> topInputs() {
+    return memoryInputs().flatMap(input -> IntStream.of(0, TOP).mapToObj(top -> {
+      Object[] values = input.get();
+      return Arguments.of(values[0], values[1], values[2], top);
+    }));
+  }
+
+  /**
+   * Benchmarks searching larger inputs and writing the results with the maximum number of threads,
+   * either keeping every result or only the top results of each query.
+   *
+   * @param name the name of the input
+   * @param source the arguments to build the index
+   * @param exact whether to use exact search
+   * @param top the number of results to keep per query, or 0 to keep every result
+   */
+  @Order(6)
+  @ParameterizedTest(name = "{0} exact={2} top={3}")
+  @MethodSource("topInputs")
+  public void benchmarkTop(String name, String[] source, boolean exact, int top) {
+    String type = exact ? "exact" : "partial";
+    String label = String.format("top-%s-%s-%s", name, type, top > 0 ? top : "all");
+
+    List<String> args = new ArrayList<>(List.of(source));
+    args.addAll(List.of("-query", TestUtilities.QUERY_INPUT.resolve("letters.txt").toString(),
+        "-results", TestUtilities.ACTUAL_PATH.resolve(label + ".json").toString(),
+        "-threads", Integer.toString(MAX_THREADS)));
+
+    if (top > 0) {
+      args.addAll(List.of(TopOutputTest.TOP, Integer.toString(top)));
+    }
+
+    if (exact) {
+      args.add("-exact");
+    }
+
+    benchmark(label, MAX_THREADS, args.toArray(String[]::new));
+  }
+
+  /**
+   * Provides the query files, search types, and modes for the batch benchmarks.
+   *
+   * @return every query file in {@link #QUERIES} with both search types, with and without batches
+   */
+  public static Stream<Arguments> batches() {
+    return QUERIES.stream().flatMap(query -> Stream.of(false, true).flatMap(
+        exact -> Stream.of(false, true).map(batch -> Arguments.of(query, exact, batch))));
+  }
+
+  /**
+   * Benchmarks searching a saved index of the text input with the maximum number of threads, and
+   * reports the throughput in query lines per second.
+   *
+   * @param query the query file to use
+   * @param exact whether to use exact search
+   * @param batch whether to search the query file as a batch
+   * @throws IOException if unable to read the query file
+   */
+  @Order(7)
+  @ParameterizedTest(name = "{0} exact={1} batch={2}")
+  @MethodSource("batches")
+  public void benchmarkBatch(String query, boolean exact, boolean batch) throws IOException {
+    Path path = TestUtilities.QUERY_INPUT.resolve(query);
+
+    List<String> args = new ArrayList<>(List.of(PersistenceOutputTest.LOAD, savedText().toString(),
+        "-query", path.toString(), "-threads", Integer.toString(MAX_THREADS)));
+
+    if (exact) {
+      args.add("-exact");
+    }
+
+    if (batch) {
+      args.add(BatchOutputTest.BATCH);
+    }
+
+    String label = String.format("%s-%s-%s", batch ? "batch" : "single",
+        exact ? "exact" : "partial", query.replace(".txt", ""));
+
+    Benchmarker.Result result = benchmark(label, MAX_THREADS, args.toArray(String[]::new));
+    long lines = Files.readAllLines(path, StandardCharsets.UTF_8).size();
+
+    System.out.printf("%s: %.1f query lines/sec%n", result.label,
+        lines / (result.mean() / TimeUnit.SECONDS.toNanos(1)));
+  }
+
+  /**
+   * Benchmarks partial search of a saved index of the guten subdirectory for a single one letter
+   * query.
+   *
+   * @param threads the number of worker threads to use
+   * @throws IOException if unable to write the prefix query file
+   */
+  @Order(8)
+  @ParameterizedTest(name = "{0} thread(s)")
+  @MethodSource("threads")
+  public void benchmarkPrefix(int threads) throws IOException {
+    savePrefix();
+
+    String[] args = {
+        PersistenceOutputTest.LOAD, savedGuten.toString(),
+        "-query", prefixQuery.toString(),
+        "-threads", Integer.toString(threads)};
+
+    benchmark("prefix-" + PREFIX, threads, args);
+  }
+
+  /**
+   * Runs and reports a single benchmark. Makes sure the code runs without exceptions first.
+   *
+   * @param name the name of the benchmark
+   * @param threads the number of worker threads used
+   * @param args the arguments to benchmark
+   * @return the result of the benchmark
+   */
+  public static Benchmarker.Result benchmark(String name, int threads, String[] args) {
+    TestUtilities.testExceptionTimeout(args, ThreadRuntimeTest.TIMEOUT);
+
+    Benchmarker.Result result = Benchmarker.benchmark(name + " (" + threads + ")", args);
+    results.add(result);
+    result.print();
+    return result;
+  }
+}
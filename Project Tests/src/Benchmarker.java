@@ -0,0 +1,566 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import org.junit.jupiter.api.Assertions;
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ * Benchmarks {@link Driver#main(String[])} in the style of JMH: separate warmup and measurement
+ * iterations timed with {@link System#nanoTime()}, percentiles and {@link Statistics#CONFIDENCE}
+ * error bars for the measurements, and a garbage collection profiler that reports how much memory
+ * was allocated and collected per run. The peak retained heap use of each run is also tracked,
+ * which is the largest heap use right after a garbage collection during the run. Unlike the peak
+ * usage of the memory pools, it does not depend on how large the young generation is or when it
+ * happens to be collected, so it is the closest measure of how large the index grows while it is
+ * being built. A run that finishes without any collection reports no retained heap use, so use a
+ * smaller -Xmx setting when the retained heap use of short runs matters.
+ *
+ * Unlike JMH, every run happens in the current JVM so that the benchmarks work with the same
+ * Eclipse setup as the rest of the tests. Keep that in mind when comparing results across runs.
+ *
+ * @author CS 212 Software Development
+ * @author University of San Francisco
+ * @version Spring 2020
+ */
+public class Benchmarker {
+
+  /** The default number of warmup runs, overridden by the "benchmark.warmup" property. */
+  public static final int WARM_RUNS = Integer.getInteger("benchmark.warmup", 5);
+
+  /** The default number of timed runs, overridden by the "benchmark.runs" property. */
+  public static final int TIME_RUNS = Integer.getInteger("benchmark.runs", 10);
+
+  /** The percentiles to report for every benchmark. */
+  public static final double[] PERCENTILES = {0, 50, 90, 95, 99, 100};
+
+  /** Number of bytes in a megabyte. */
+  private static final double MEGABYTE = 1024 * 1024;
+
+  /** Number of nanoseconds in a millisecond. */
+  private static final double MILLISECOND = TimeUnit.MILLISECONDS.toNanos(1);
+
+  /** Total bytes reclaimed by the garbage collector since this class was loaded. */
+  private static final AtomicLong collected = new AtomicLong();
+
+  /**
+   * Total number of garbage collection notifications received, starting from the number of
+   * collections before the listener was added since those never generate a notification.
+   */
+  private static final AtomicLong notified = new AtomicLong(collectionCount());
+
+  /** The largest heap use right after a garbage collection since the last reset. */
+  private static final AtomicLong retained = new AtomicLong();
+
+  static {
+    NotificationListener listener = new NotificationListener() {
+      @Override
+      public void handleNotification(Notification notification, Object handback) {
+        if (notification.getType()
+            .equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+          GarbageCollectionNotificationInfo info =
+              GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+
+          Map<String, MemoryUsage> before = info.getGcInfo().getMemoryUsageBeforeGc();
+          Map<String, MemoryUsage> after = info.getGcInfo().getMemoryUsageAfterGc();
+
+          long bytes = 0;
+          long used = 0;
+
+          for (String pool : before.keySet()) {
+            bytes += before.get(pool).getUsed() - after.get(pool).getUsed();
+          }
+
+          for (MemoryUsage usage : after.values()) {
+            used += usage.getUsed();
+          }
+
+          collected.addAndGet(bytes);
+          retained.accumulateAndGet(used, Math::max);
+          notified.incrementAndGet();
+        }
+      }
+    };
+
+    for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      if (bean instanceof NotificationEmitter) {
+        ((NotificationEmitter) bean).addNotificationListener(listener, null, null);
+      }
+    }
+  }
+
+  /**
+   * Benchmarks {@link Driver#main(String[])} with the provided arguments using the default number
+   * of warmup and timed runs.
+   *
+   * @param label the label to use when reporting the results
+   * @param args the arguments to run
+   * @return the benchmark results
+   */
+  public static Result benchmark(String label, String[] args) {
+    return benchmark(label, args, WARM_RUNS, TIME_RUNS);
+  }
+
+  /**
+   * Benchmarks {@link Driver#main(String[])} with the provided arguments. All console output is
+   * suppressed while running. If an exception occurs, the calling test fails.
+   *
+   * @param label the label to use when reporting the results
+   * @param args the arguments to run
+   * @param warmRuns the number of warmup runs (results are kept but not used in the statistics)
+   * @param timeRuns the number of timed runs
+   * @return the benchmark results
+   */
+  public static Result benchmark(String label, String[] args, int warmRuns, int timeRuns) {
+    Result result = new Result(label, args, warmRuns);
+    extend(result, warmRuns + timeRuns);
+    return result;
+  }
+
+  /**
+   * Adds more runs to an existing benchmark result. The first runs of every result are treated as
+   * warmup runs. All console output is suppressed while running. If an exception occurs, the
+   * calling test fails.
+   *
+   * @param result the result to extend
+   * @param runs the number of runs to add
+   * @return the same result with the additional runs
+   */
+  public static Result extend(Result result, int runs) {
+    // supress all console output for the warmup and timed runs
+    PrintStream systemOut = System.out;
+    PrintStream systemErr = System.err;
+
+    PrintStream nullStream = new PrintStream(OutputStream.nullOutputStream());
+    System.setOut(nullStream);
+    System.setErr(nullStream);
+
+    try {
+      for (int i = 0; i < runs; i++) {
+        run(result);
+      }
+    } catch (Exception e) {
+      StringWriter writer = new StringWriter();
+      e.printStackTrace(new PrintWriter(writer));
+
+      String debug = String.format("%nArguments:%n    [%s]%nException:%n    %s%n",
+          String.join(" ", result.args), writer.toString());
+      Assertions.fail(debug);
+    } finally {
+      // restore console output
+      System.setOut(systemOut);
+      System.setErr(systemErr);
+    }
+
+    return result;
+  }
+
+  /**
+   * Runs {@link Driver#main(String[])} once and records the elapsed time and garbage collection
+   * activity in the result.
+   *
+   * @param result the result to update
+   * @throws Exception if {@link Driver#main(String[])} throws an exception
+   */
+  private static void run(Result result) throws Exception {
+    // start each run from a clean heap so the previous run is not billed to this one
+    System.gc();
+    awaitNotifications(collectionCount());
+
+    long gcCount = collectionCount();
+    long gcTime = collectionTime();
+    long heap = heapUsed();
+    long freed = collected.get();
+    retained.set(0);
+    long start = System.nanoTime();
+
+    Driver.main(result.args);
+
+    long time = System.nanoTime() - start;
+    long gcCounted = collectionCount() - gcCount;
+    long gcTimed = collectionTime() - gcTime;
+
+    awaitNotifications(gcCount + gcCounted);
+    long peak = Math.max(0, retained.get() - heap);
+    result.add(time, heapUsed() - heap + collected.get() - freed, peak, gcCounted, gcTimed);
+  }
+
+  /**
+   * Waits briefly for the garbage collection notifications to catch up with the number of
+   * collections, since notifications are delivered asynchronously. Gives up after half a second
+   * rather than pretending the missing notifications arrived.
+   *
+   * @param expected the expected number of collections
+   */
+  private static void awaitNotifications(long expected) {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+
+    while (notified.get() < expected && System.nanoTime() < deadline) {
+      Thread.onSpinWait();
+    }
+  }
+
+  /**
+   * Returns the total number of garbage collections so far.
+   *
+   * @return the total number of garbage collections
+   */
+  private static long collectionCount() {
+    long total = 0;
+
+    for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      total += Math.max(0, bean.getCollectionCount());
+    }
+
+    return total;
+  }
+
+  /**
+   * Returns the total time spent in garbage collection so far in milliseconds.
+   *
+   * @return the total garbage collection time
+   */
+  private static long collectionTime() {
+    long total = 0;
+
+    for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      total += Math.max(0, bean.getCollectionTime());
+    }
+
+    return total;
+  }
+
+  /**
+   * Returns the number of bytes currently used on the heap.
+   *
+   * @return the number of bytes used on the heap
+   */
+  private static long heapUsed() {
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  /**
+   * Prints the results in a table similar to the JMH output.
+   *
+   * @param results the results to print
+   */
+  public static void print(List<Result> results) {
+    String labelFormat = "%-30s %6s %12s %12s %12s %12s %12s %12s %12s%n";
+    String valueFormat = "%-30s %6d %12.3f %12.3f %12.3f %12.3f %12.2f %12.2f %12.2f%n";
+
+    System.out.printf("%n```%n");
+    System.out.printf(labelFormat, "Benchmark", "Runs", "Mean (ms)", "Error (ms)", "p50 (ms)",
+        "p99 (ms)", "Alloc (MB)", "MB/sec", "Peak (MB)");
+
+    for (Result result : results) {
+      System.out.printf(valueFormat, result.label, result.timeRuns(), result.mean() / MILLISECOND,
+          result.error() / MILLISECOND, result.percentile(50) / MILLISECOND,
+          result.percentile(99) / MILLISECOND, result.allocated() / MEGABYTE,
+          result.allocationRate() / MEGABYTE, result.peakHeap() / MEGABYTE);
+    }
+
+    System.out.printf("```%n%n");
+  }
+
+  /**
+   * Writes the results as CSV with one row per benchmark, so they can be used as the baseline for
+   * a later run. Numbers always use a period as the decimal separator, whatever the default locale.
+   *
+   * @param results the results to write
+   * @param path the CSV file to write
+   * @throws IOException if unable to write the file
+   */
+  public static void write(List<Result> results, Path path) throws IOException {
+    List<String> lines = new ArrayList<>();
+    lines.add("label,mean_ms,error_ms,p50_ms,alloc_mb,peak_mb");
+
+    for (Result result : results) {
+      lines.add(String.format(Locale.ROOT, "%s,%.3f,%.3f,%.3f,%.3f,%.3f",
+          result.label.replace(',', ' '),
+          result.mean() / MILLISECOND, result.error() / MILLISECOND,
+          result.percentile(50) / MILLISECOND, result.allocated() / MEGABYTE,
+          result.peakHeap() / MEGABYTE));
+    }
+
+    if (path.getParent() != null) {
+      Files.createDirectories(path.getParent());
+    }
+
+    Files.write(path, lines, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Prints how the median time and peak heap use of each result compare to a baseline written by
+   * {@link #write(List, Path)}, such as a run before changing how the index is stored. Ratios below
+   * 1 are improvements.
+   *
+   * @param results the results to compare
+   * @param baseline the CSV file with the baseline results
+   * @throws IOException if unable to read the baseline
+   */
+  public static void compare(List<Result> results, Path baseline) throws IOException {
+    Map<String, String[]> rows = new HashMap<>();
+
+    for (String line : Files.readAllLines(baseline, StandardCharsets.UTF_8)) {
+      String[] columns = line.split(",");
+      rows.put(columns[0], columns);
+    }
+
+    String labelFormat = "%-30s %12s %12s %10s %12s %12s %10s%n";
+    String valueFormat = "%-30s %12.3f %12.3f %10.3f %12.2f %12.2f %10.3f%n";
+
+    System.out.printf("%n```%nBaseline: %s%n", baseline);
+    System.out.printf(labelFormat, "Benchmark", "Base (ms)", "p50 (ms)", "Time", "Base (MB)",
+        "Peak (MB)", "Heap");
+
+    for (Result result : results) {
+      String[] row = rows.get(result.label.replace(',', ' '));
+
+      if (row == null) {
+        continue;
+      }
+
+      double time = Double.parseDouble(row[3]);
+      double peak = Double.parseDouble(row[5]);
+      double median = result.percentile(50) / MILLISECOND;
+      double heap = result.peakHeap() / MEGABYTE;
+
+      System.out.printf(valueFormat, result.label, time, median, median / time, peak, heap,
+          heap / peak);
+    }
+
+    System.out.printf("```%n%n");
+  }
+
+  /**
+   * Stores the measurements of a single benchmark. Warmup runs are stored first, followed by the
+   * timed runs.
+   */
+  public static class Result {
+
+    /** The label used when reporting the results. */
+    public final String label;
+
+    /**
+     * The arguments passed to {@link Driver#main(String[])}, including any
+     * {@link TestUtilities#EXTRA_ARGS}.
+     */
+    public final String[] args;
+
+    /** The number of warmup runs. */
+    public final int warmRuns;
+
+    /** The elapsed time of each run in nanoseconds. */
+    private long[] times;
+
+    /** The bytes allocated by each run. */
+    private long[] allocated;
+
+    /** The peak retained heap use of each run above the heap use before the run in bytes. */
+    private long[] peaks;
+
+    /** The number of garbage collections during each run. */
+    private long[] gcCounts;
+
+    /** The time spent in garbage collection during each run in milliseconds. */
+    private long[] gcTimes;
+
+    /** The number of runs so far, including the warmup runs. */
+    private int count;
+
+    /**
+     * Initializes an empty result.
+     *
+     * @param label the label used when reporting the results
+     * @param args the arguments passed to {@link Driver#main(String[])}
+     * @param warmRuns the number of warmup runs
+     */
+    public Result(String label, String[] args, int warmRuns) {
+      this.label = label;
+      this.args = TestUtilities.withExtraArgs(args);
+      this.warmRuns = warmRuns;
+      this.times = new long[Math.max(1, warmRuns + TIME_RUNS)];
+      this.allocated = new long[times.length];
+      this.peaks = new long[times.length];
+      this.gcCounts = new long[times.length];
+      this.gcTimes = new long[times.length];
+      this.count = 0;
+    }
+
+    /**
+     * Records the measurements of a single run.
+     *
+     * @param time the elapsed time in nanoseconds
+     * @param bytes the bytes allocated
+     * @param peak the peak retained heap use above the heap use before the run
+     * @param gcCount the number of garbage collections
+     * @param gcTime the time spent in garbage collection in milliseconds
+     */
+    private void add(long time, long bytes, long peak, long gcCount, long gcTime) {
+      if (count == times.length) {
+        int length = times.length * 2;
+        times = Arrays.copyOf(times, length);
+        allocated = Arrays.copyOf(allocated, length);
+        peaks = Arrays.copyOf(peaks, length);
+        gcCounts = Arrays.copyOf(gcCounts, length);
+        gcTimes = Arrays.copyOf(gcTimes, length);
+      }
+
+      times[count] = time;
+      allocated[count] = bytes;
+      peaks[count] = peak;
+      gcCounts[count] = gcCount;
+      gcTimes[count] = gcTime;
+      count++;
+    }
+
+    /**
+     * Returns the number of timed runs so far.
+     *
+     * @return the number of timed runs
+     */
+    public int timeRuns() {
+      return Math.max(0, count - warmRuns);
+    }
+
+    /**
+     * Returns the elapsed time of every run in nanoseconds, including the warmup runs.
+     *
+     * @return the elapsed time of every run
+     */
+    public long[] runs() {
+      return Arrays.copyOf(times, count);
+    }
+
+    /**
+     * Returns the elapsed time of the timed runs in nanoseconds.
+     *
+     * @return the elapsed time of the timed runs
+     */
+    public long[] timed() {
+      return Arrays.copyOfRange(times, Math.min(warmRuns, count), count);
+    }
+
+    /**
+     * Returns the mean elapsed time of the timed runs in nanoseconds.
+     *
+     * @return the mean elapsed time
+     */
+    public double mean() {
+      return Statistics.mean(timed());
+    }
+
+    /**
+     * Returns the error bar around the mean elapsed time in nanoseconds.
+     *
+     * @return the half-width of the confidence interval around the mean
+     * @see Statistics#error(long[])
+     */
+    public double error() {
+      return Statistics.error(timed());
+    }
+
+    /**
+     * Returns a percentile of the elapsed time of the timed runs in nanoseconds.
+     *
+     * @param percentile the percentile between 0 and 100 (inclusive)
+     * @return the percentile elapsed time
+     */
+    public double percentile(double percentile) {
+      return Statistics.percentile(timed(), percentile);
+    }
+
+    /**
+     * Returns the mean number of bytes allocated per timed run.
+     *
+     * @return the mean bytes allocated per run
+     */
+    public double allocated() {
+      return Statistics.mean(Arrays.copyOfRange(allocated, Math.min(warmRuns, count), count));
+    }
+
+    /**
+     * Returns the allocation rate over the timed runs in bytes per second.
+     *
+     * @return the allocation rate
+     */
+    public double allocationRate() {
+      return allocated() / (mean() / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * Returns the median peak retained heap use of the timed runs in bytes, above the heap use
+     * before each run started. This is the largest heap use right after a garbage collection
+     * during the run, or 0 if no collection happened.
+     *
+     * @return the median peak retained heap use
+     */
+    public double peakHeap() {
+      return Statistics.median(Arrays.copyOfRange(peaks, Math.min(warmRuns, count), count));
+    }
+
+    /**
+     * Returns the mean number of garbage collections per timed run.
+     *
+     * @return the mean number of garbage collections
+     */
+    public double gcCount() {
+      return Statistics.mean(Arrays.copyOfRange(gcCounts, Math.min(warmRuns, count), count));
+    }
+
+    /**
+     * Returns the mean time spent in garbage collection per timed run in milliseconds.
+     *
+     * @return the mean garbage collection time
+     */
+    public double gcTime() {
+      return Statistics.mean(Arrays.copyOfRange(gcTimes, Math.min(warmRuns, count), count));
+    }
+
+    /**
+     * Prints the percentiles and garbage collection profile for this result.
+     */
+    public void print() {
+      System.out.printf("%n```%n%s: %s%n", label, String.join(" ", args));
+      System.out.printf("  time:         %10.3f \u00b1 %.3f ms/op (%.1f%%)%n", mean() / MILLISECOND,
+          error() / MILLISECOND, Statistics.CONFIDENCE * 100);
+
+      for (double percentile : PERCENTILES) {
+        System.out.printf("  time.p%-7s %10.3f ms/op%n", String.format("%.2f:", percentile),
+            percentile(percentile) / MILLISECOND);
+      }
+
+      System.out.printf("  gc.alloc.rate %10.3f MB/sec%n", allocationRate() / MEGABYTE);
+      System.out.printf("  gc.alloc.norm %10.3f MB/op%n", allocated() / MEGABYTE);
+      System.out.printf("  heap.retained %10.3f MB/op%n", peakHeap() / MEGABYTE);
+      System.out.printf("  gc.count      %10.3f counts/op%n", gcCount());
+      System.out.printf("  gc.time       %10.3f ms/op%n", gcTime());
+      System.out.printf("```%n");
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s: %.3f \u00b1 %.3f ms/op", label, mean() / MILLISECOND,
+          error() / MILLISECOND);
+    }
+  }
+}
@@ -0,0 +1,256 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.MethodOrderer.Alphanumeric;
+import org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.parallel.ResourceAccessMode;
+import org.junit.jupiter.api.parallel.ResourceLock;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * JUnit tests for caching search results with the {@value #CACHE} flag, which limits the number of
+ * cached queries, and the {@value #CACHE_BYTES} flag, which limits the approximate size of the
+ * cached results. The cache must be keyed by the cleaned, stemmed, and sorted query and by the
+ * search type, so repeated and equivalent query lines are only searched once while cached.
+ *
+ * Each test repeats every line of a query file several times, sometimes reordered, in uppercase, or
+ * with words doubled. Since every variant of a line collapses to the same query, the output must be
+ * exactly the same as the output for the original query file no matter how small the cache is, so
+ * the same expected files are used. Small limits force entries to be evicted while they are still
+ * being looked up.
+ *
+ * The cache should report its hits, misses, and evictions in a "cache" object of the
+ * {@link DriverMetrics} file, and must be cleared whenever the index changes.
+ *
+ * @author CS 212 Software Development
+ * @author University of San Francisco
+ * @version Spring 2020
+ */
+@TestMethodOrder(Alphanumeric.class)
+public class CacheOutputTest {
+
+  /** The flag used to limit the number of cached queries. */
+  public static final String CACHE = "-cache";
+
+  /** The flag used to limit the approximate size of the cached results in bytes. */
+  public static final String CACHE_BYTES = "-cache-bytes";
+
+  /** The number of times each line of the query file is repeated. */
+  public static final int COPIES = 4;
+
+  /** Where to create the repeated query files. */
+  public static final Path WORKING = TestUtilities.ACTUAL_PATH.resolve("cache");
+
+  /** The repeated query files already created, so they are not rewritten while in use. */
+  private static final Set<Path> created = new HashSet<>();
+
+  /**
+   * Creates a query file with every line of the original repeated {@link #COPIES} times. The first
+   * copy is unchanged, the second has its words in reverse order, the third is in uppercase, and
+   * the fourth has every word doubled. The copies are spread throughout the file so that a small
+   * cache evicts entries before they are used again.
+   *
+   * @param query the query file to repeat
+   * @return the path to the repeated query file
+   * @throws UncheckedIOException if unable to read or write the files
+   */
+  public static synchronized Path repeat(String query) {
+    Path repeated = WORKING.resolve(query.replace(".txt", "-repeated.txt")).normalize();
+
+    if (created.contains(repeated)) {
+      return repeated;
+    }
+
+    try {
+      List<String> lines = Files.readAllLines(TestUtilities.QUERY_INPUT.resolve(query),
+          StandardCharsets.UTF_8);
+      List<String> output = new ArrayList<>();
+
+      for (int copy = 0; copy < COPIES; copy++) {
+        for (String line : lines) {
+          output.add(vary(line, copy));
+        }
+      }
+
+      Files.createDirectories(repeated.getParent());
+      Files.write(repeated, output, StandardCharsets.UTF_8);
+      created.add(repeated);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    return repeated;
+  }
+
+  /**
+   * Returns an equivalent variant of a query line.
+   *
+   * @param line the query line
+   * @param copy which copy of the line to create
+   * @return the variant of the query line
+   */
+  private static String vary(String line, int copy) {
+    List<String> words = new ArrayList<>(Arrays.asList(line.strip().split("\\s+")));
+
+    switch (copy % COPIES) {
+      case 1:
+        Collections.reverse(words);
+        return String.join(" ", words);
+      case 2:
+        return line.toUpperCase(Locale.ROOT);
+      case 3:
+        return words.stream().map(word -> word + " " + word).collect(Collectors.joining(" "));
+      default:
+        return line;
+    }
+  }
+
+  /**
+   * Searches the repeated query file with the cache limits and tests the search output. Designed to
+   * be used inside a JUnit test.
+   *
+   * @param subdir the output subdirectory to use
+   * @param input the input path to use
+   * @param query the query file to repeat for search
+   * @param exact whether to perform exact or partial search
+   * @param limits the cache flags and values to use
+   */
+  public static void test(String subdir, Path input, String query, boolean exact,
+      String... limits) {
+    String type = exact ? "exact" : "partial";
+    String filename = TestUtilities.outputFileName("search-" + type, input);
+
+    Path actual = WORKING.resolve(filename).normalize();
+    Path expected = TestUtilities.EXPECTED_PATH.resolve(subdir).resolve(filename).normalize();
+
+    List<String> args = new ArrayList<>(List.of("-path", input.normalize().toString(), "-query",
+        repeat(query).toString(), "-results", actual.toString()));
+    args.addAll(List.of(limits));
+
+    if (exact) {
+      args.add("-exact");
+    }
+
+    TestUtilities.checkOutput(args.toArray(String[]::new), actual, expected);
+  }
+
+  /**
+   * Tests the search output with repeated queries and a limited number of cached queries.
+   */
+  @Nested
+  @TestMethodOrder(OrderAnnotation.class)
+  @ResourceLock(value = TestUtilities.RUNTIME_LOCK, mode = ResourceAccessMode.READ)
+  public class A_CacheEntriesTest {
+
+    /**
+     * Tests the exact search output for the simple subdirectory.
+     *
+     * @param entries the maximum number of cached queries
+     */
+    @Order(1)
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4, 1000})
+    public void testSimpleExact(int entries) {
+      test("search-exact", TestUtilities.TEXT_INPUT.resolve("simple"), "simple.txt", true, CACHE,
+          Integer.toString(entries));
+    }
+
+    /**
+     * Tests the partial search output for the simple subdirectory.
+     *
+     * @param entries the maximum number of cached queries
+     */
+    @Order(2)
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4, 1000})
+    public void testSimplePartial(int entries) {
+      test("search-partial", TestUtilities.TEXT_INPUT.resolve("simple"), "simple.txt", false,
+          CACHE, Integer.toString(entries));
+    }
+
+    /**
+     * Tests the exact search output for the entire input directory.
+     *
+     * @param entries the maximum number of cached queries
+     */
+    @Order(3)
+    @ParameterizedTest
+    @ValueSource(ints = {16, 1000})
+    public void testTextExact(int entries) {
+      test("search-exact", TestUtilities.TEXT_INPUT, "complex.txt", true, CACHE,
+          Integer.toString(entries));
+    }
+
+    /**
+     * Tests the partial search output for the entire input directory.
+     *
+     * @param entries the maximum number of cached queries
+     */
+    @Order(4)
+    @ParameterizedTest
+    @ValueSource(ints = {16, 1000})
+    public void testTextPartial(int entries) {
+      test("search-partial", TestUtilities.TEXT_INPUT, "complex.txt", false, CACHE,
+          Integer.toString(entries));
+    }
+  }
+
+  /**
+   * Tests the search output with repeated queries and a limited size of the cached results.
+   */
+  @Nested
+  @TestMethodOrder(OrderAnnotation.class)
+  @ResourceLock(value = TestUtilities.RUNTIME_LOCK, mode = ResourceAccessMode.READ)
+  public class B_CacheBytesTest {
+
+    /**
+     * Tests the partial search output for the simple subdirectory with a cache too small to hold
+     * most results.
+     */
+    @Order(1)
+    @Test
+    public void testSimplePartial() {
+      test("search-partial", TestUtilities.TEXT_INPUT.resolve("simple"), "simple.txt", false,
+          CACHE_BYTES, "256");
+    }
+
+    /**
+     * Tests the partial search output for the rfcs subdirectory, where the single letter queries
+     * have large results.
+     *
+     * @param bytes the maximum size of the cached results in bytes
+     */
+    @Order(2)
+    @ParameterizedTest
+    @ValueSource(ints = {1024, 1048576})
+    public void testRfcPartial(int bytes) {
+      test("search-partial", TestUtilities.TEXT_INPUT.resolve("rfcs"), "letters.txt", false,
+          CACHE_BYTES, Integer.toString(bytes));
+    }
+
+    /**
+     * Tests the exact search output for the entire input directory with both limits.
+     */
+    @Order(3)
+    @Test
+    public void testTextExact() {
+      test("search-exact", TestUtilities.TEXT_INPUT, "complex.txt", true, CACHE, "32",
+          CACHE_BYTES, "65536");
+    }
+  }
+}
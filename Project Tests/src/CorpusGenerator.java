@@ -0,0 +1,410 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Generates large synthetic text corpora and matching query files for load testing
+ * {@link Driver}. Words are drawn from the {@link #VOCABULARY} file following a Zipf distribution,
+ * file sizes follow a log-normal distribution, and files are spread across a directory tree of
+ * configurable depth. The output depends only on the settings and seed, so the same corpus can be
+ * regenerated anywhere instead of being stored.
+ *
+ * Can be run from the command line, for example:
+ *
+ * <pre>
+ * java CorpusGenerator -output synthetic -size 2G -seed 212 -queries synthetic.txt
+ * </pre>
+ *
+ * @author CS 212 Software Development
+ * @author University of San Francisco
+ * @version Spring 2020
+ */
+public class CorpusGenerator {
+
+  /** The default vocabulary to draw words from. */
+  public static final Path VOCABULARY =
+      TestUtilities.TEXT_INPUT.resolve("stemmer").resolve("voc.txt");
+
+  /** The file extensions to use for generated files. */
+  public static final String[] EXTENSIONS = {".txt", ".text", ".TXT", ".Text"};
+
+  /** The words in the vocabulary, ordered by Zipf rank. */
+  private final String[] words;
+
+  /** The cumulative Zipf probability of each word by rank. */
+  private final double[] cumulative;
+
+  /** The seed that determines the generated output. */
+  private final long seed;
+
+  /** The total number of bytes to generate. */
+  private long size = 100 * 1024 * 1024;
+
+  /** The median file size in bytes. */
+  private long median = 64 * 1024;
+
+  /** The standard deviation of the natural logarithm of the file size. */
+  private double sigma = 1.0;
+
+  /** The minimum file size in bytes. */
+  private long minimum = 1024;
+
+  /** The maximum file size in bytes. */
+  private long maximum = 16 * 1024 * 1024;
+
+  /** The maximum directory depth below the output directory. */
+  private int depth = 3;
+
+  /** The number of subdirectories in each directory. */
+  private int fanout = 8;
+
+  /** The average number of words per line. */
+  private int lineWords = 12;
+
+  /**
+   * Initializes a generator using the provided vocabulary.
+   *
+   * @param vocabulary the file with one word per line to draw words from
+   * @param exponent the Zipf exponent, where 1 approximates natural language
+   * @param seed the seed that determines the generated output
+   * @throws IOException if unable to read the vocabulary
+   */
+  public CorpusGenerator(Path vocabulary, double exponent, long seed) throws IOException {
+    this.seed = seed;
+
+    try (Stream<String> lines = Files.lines(vocabulary, StandardCharsets.UTF_8)) {
+      this.words = lines.map(String::strip)
+          .filter(word -> !word.isEmpty())
+          .toArray(String[]::new);
+    }
+
+    // shuffle so the most frequent words are not simply the first alphabetically
+    SplittableRandom random = new SplittableRandom(seed);
+
+    for (int i = words.length - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      String temp = words[i];
+      words[i] = words[j];
+      words[j] = temp;
+    }
+
+    this.cumulative = new double[words.length];
+    double total = 0;
+
+    for (int i = 0; i < words.length; i++) {
+      total += 1 / Math.pow(i + 1, exponent);
+      cumulative[i] = total;
+    }
+
+    for (int i = 0; i < words.length; i++) {
+      cumulative[i] /= total;
+    }
+  }
+
+  /**
+   * Initializes a generator using the default vocabulary and a Zipf exponent of 1.
+   *
+   * @param seed the seed that determines the generated output
+   * @throws IOException if unable to read the vocabulary
+   */
+  public CorpusGenerator(long seed) throws IOException {
+    this(VOCABULARY, 1.0, seed);
+  }
+
+  /**
+   * Sets the total number of bytes to generate.
+   *
+   * @param size the total number of bytes
+   * @return this generator
+   */
+  public CorpusGenerator setSize(long size) {
+    this.size = size;
+    return this;
+  }
+
+  /**
+   * Sets the log-normal distribution of file sizes. Sizes outside the minimum and maximum are
+   * clamped.
+   *
+   * @param median the median file size in bytes
+   * @param sigma the standard deviation of the natural logarithm of the file size
+   * @param minimum the minimum file size in bytes
+   * @param maximum the maximum file size in bytes
+   * @return this generator
+   */
+  public CorpusGenerator setFileSizes(long median, double sigma, long minimum, long maximum) {
+    this.median = median;
+    this.sigma = sigma;
+    this.minimum = minimum;
+    this.maximum = maximum;
+    return this;
+  }
+
+  /**
+   * Sets the shape of the directory tree.
+   *
+   * @param depth the maximum directory depth below the output directory
+   * @param fanout the number of subdirectories in each directory
+   * @return this generator
+   */
+  public CorpusGenerator setDirectories(int depth, int fanout) {
+    this.depth = depth;
+    this.fanout = fanout;
+    return this;
+  }
+
+  /**
+   * Sets the average number of words per line.
+   *
+   * @param lineWords the average number of words per line
+   * @return this generator
+   */
+  public CorpusGenerator setLineWords(int lineWords) {
+    this.lineWords = lineWords;
+    return this;
+  }
+
+  /**
+   * Generates the corpus in the output directory. Files are generated in parallel, but each file
+   * uses its own seed so the output is the same regardless of the order files are written.
+   *
+   * @param output the directory to generate the corpus in
+   * @return the generated files
+   * @throws IOException if an I/O error occurs
+   */
+  public List<Path> generate(Path output) throws IOException {
+    SplittableRandom random = new SplittableRandom(seed);
+    List<Path> files = new ArrayList<>();
+    List<Long> sizes = new ArrayList<>();
+    long total = 0;
+
+    // decide the location and size of every file first
+    while (total < size) {
+      long bytes = Math.round(median * Math.exp(sigma * gaussian(random)));
+      bytes = Math.min(Math.min(maximum, Math.max(minimum, bytes)), size - total);
+
+      Path directory = output;
+      int levels = random.nextInt(depth + 1);
+
+      for (int level = 0; level < levels; level++) {
+        directory = directory.resolve(String.format("d%02d", random.nextInt(fanout)));
+      }
+
+      String extension = EXTENSIONS[random.nextInt(EXTENSIONS.length)];
+      files.add(directory.resolve(String.format("file%06d%s", files.size(), extension)));
+      sizes.add(bytes);
+      total += bytes;
+    }
+
+    try {
+      IntStream.range(0, files.size()).parallel().forEach(i -> {
+        try {
+          Files.createDirectories(files.get(i).getParent());
+          writeFile(files.get(i), sizes.get(i), new SplittableRandom(seed + i + 1));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+
+    return files;
+  }
+
+  /**
+   * Writes a single file of approximately the requested size. The size is counted in UTF-8 bytes,
+   * so vocabulary words with non-ASCII letters count for more than their number of characters.
+   *
+   * @param file the file to write
+   * @param bytes the number of bytes to write
+   * @param random the source of randomness for this file
+   * @throws IOException if an I/O error occurs
+   */
+  private void writeFile(Path file, long bytes, SplittableRandom random) throws IOException {
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      long written = 0;
+      int remaining = nextLineLength(random);
+
+      while (written < bytes) {
+        String word = nextWord(random);
+
+        // capitalize some words to exercise the text cleaning
+        if (random.nextInt(10) == 0) {
+          word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+        }
+
+        writer.write(word);
+        written += word.getBytes(StandardCharsets.UTF_8).length;
+        remaining--;
+
+        if (remaining <= 0 || written + 1 >= bytes) {
+          writer.write('\n');
+          remaining = nextLineLength(random);
+        } else {
+          writer.write(' ');
+        }
+
+        written++;
+      }
+    }
+  }
+
+  /**
+   * Generates a query file in the style of input/query/complex.txt. Each line has a handful of
+   * query words, where each word is either a whole word from the vocabulary or a short prefix of
+   * one, so both exact and partial search are exercised.
+   *
+   * @param file the query file to write
+   * @param lines the number of lines to write
+   * @throws IOException if an I/O error occurs
+   */
+  public void generateQueries(Path file, int lines) throws IOException {
+    SplittableRandom random = new SplittableRandom(~seed);
+
+    if (file.getParent() != null) {
+      Files.createDirectories(file.getParent());
+    }
+
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      for (int line = 0; line < lines; line++) {
+        int count = 1 + random.nextInt(random.nextInt(4) == 0 ? 12 : 5);
+
+        for (int i = 0; i < count; i++) {
+          String word = nextWord(random);
+
+          if (random.nextBoolean()) {
+            word = word.substring(0, Math.min(word.length(), 1 + random.nextInt(2)));
+          }
+
+          writer.write(i == 0 ? "" : " ");
+          writer.write(word);
+        }
+
+        writer.write('\n');
+      }
+    }
+  }
+
+  /**
+   * Draws a word following the Zipf distribution.
+   *
+   * @param random the source of randomness
+   * @return the next word
+   */
+  private String nextWord(SplittableRandom random) {
+    int index = Arrays.binarySearch(cumulative, random.nextDouble());
+    index = index < 0 ? -(index + 1) : index;
+    return words[Math.min(index, words.length - 1)];
+  }
+
+  /**
+   * Draws the number of words for the next line.
+   *
+   * @param random the source of randomness
+   * @return the number of words for the next line
+   */
+  private int nextLineLength(SplittableRandom random) {
+    return 1 + random.nextInt(2 * lineWords);
+  }
+
+  /**
+   * Draws a value from the standard normal distribution using the Box-Muller transform.
+   *
+   * @param random the source of randomness
+   * @return the next standard normal value
+   */
+  private static double gaussian(SplittableRandom random) {
+    double u = 1 - random.nextDouble();
+    double v = random.nextDouble();
+    return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * v);
+  }
+
+  /**
+   * Parses a size with an optional K, M, or G suffix, such as "64K" or "2G".
+   *
+   * @param text the size to parse
+   * @return the size in bytes
+   */
+  public static long parseSize(String text) {
+    String value = text.strip().toUpperCase();
+    long unit = 1;
+
+    switch (value.isEmpty() ? ' ' : value.charAt(value.length() - 1)) {
+      case 'K':
+        unit = 1024L;
+        break;
+      case 'M':
+        unit = 1024L * 1024;
+        break;
+      case 'G':
+        unit = 1024L * 1024 * 1024;
+        break;
+      default:
+        return Long.parseLong(value);
+    }
+
+    return Math.round(Double.parseDouble(value.substring(0, value.length() - 1)) * unit);
+  }
+
+  /**
+   * Returns the value following a flag in the command-line arguments.
+   *
+   * @param args the command-line arguments
+   * @param flag the flag to find
+   * @param backup the value to return if the flag is not found
+   * @return the value following the flag, or the backup value
+   */
+  private static String value(String[] args, String flag, String backup) {
+    for (int i = 0; i < args.length - 1; i++) {
+      if (args[i].equals(flag)) {
+        return args[i + 1];
+      }
+    }
+
+    return backup;
+  }
+
+  /**
+   * Generates a corpus from the command line. Supports the flags -output, -size, -seed, -median,
+   * -sigma, -min, -max, -depth, -fanout, -zipf, -vocabulary, -queries, and -lines.
+   *
+   * @param args the command-line arguments
+   * @throws IOException if an I/O error occurs
+   */
+  public static void main(String[] args) throws IOException {
+    Path output = Path.of(value(args, "-output", "synthetic"));
+    Path vocabulary = Path.of(value(args, "-vocabulary", VOCABULARY.toString()));
+    double exponent = Double.parseDouble(value(args, "-zipf", "1.0"));
+    long seed = Long.parseLong(value(args, "-seed", "212"));
+
+    CorpusGenerator generator = new CorpusGenerator(vocabulary, exponent, seed)
+        .setSize(parseSize(value(args, "-size", "100M")))
+        .setFileSizes(parseSize(value(args, "-median", "64K")),
+            Double.parseDouble(value(args, "-sigma", "1.0")),
+            parseSize(value(args, "-min", "1K")),
+            parseSize(value(args, "-max", "16M")))
+        .setDirectories(Integer.parseInt(value(args, "-depth", "3")),
+            Integer.parseInt(value(args, "-fanout", "8")));
+
+    List<Path> files = generator.generate(output);
+    System.out.printf("Generated %d files in %s%n", files.size(), output);
+
+    String queries = value(args, "-queries", null);
+
+    if (queries != null) {
+      int lines = Integer.parseInt(value(args, "-lines", "1000"));
+      generator.generateQueries(Path.of(queries), lines);
+      System.out.printf("Generated %d queries in %s%n", lines, queries);
+    }
+  }
+}
@@ -11,6 +11,8 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.parallel.ResourceAccessMode;
+import org.junit.jupiter.api.parallel.ResourceLock;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
@@ -29,6 +31,9 @@ public class CrawlOutputTest {
    *
    * Run only a subset of tests at a time. Do not run the entire file until you are sure all of the
    * tests will pass.
+   *
+   * To run these tests without the network, set the "crawl.snapshot" property to a local snapshot
+   * of the test sites. See LocalWebServer for details.
    */
 
   /** How long each individual test should wait before timing out. */
@@ -39,6 +44,7 @@ public class CrawlOutputTest {
    */
   @Nested
   @TestMethodOrder(OrderAnnotation.class)
+  @ResourceLock(value = TestUtilities.RUNTIME_LOCK, mode = ResourceAccessMode.READ)
   public class A_CountTest {
 
     /**
@@ -122,11 +128,11 @@ public class CrawlOutputTest {
       String filename = String.format("counts-%s.json", name);
 
       Path actual = TestUtilities.ACTUAL_PATH.resolve(filename).normalize();
-      Path expected =
-          TestUtilities.EXPECTED_PATH.resolve("counts-crawl").resolve(filename).normalize();
+      Path expected = LocalWebServer.expected(
+          TestUtilities.EXPECTED_PATH.resolve("counts-crawl").resolve(filename).normalize());
 
       String[] args = {
-          "-url", link,
+          "-url", LocalWebServer.link(link),
           "-limit", Integer.toString(limit),
           "-threads", Integer.toString(5),
           "-counts", actual.normalize().toString()
@@ -144,6 +150,7 @@ public class CrawlOutputTest {
    */
   @Nested
   @TestMethodOrder(OrderAnnotation.class)
+  @ResourceLock(value = TestUtilities.RUNTIME_LOCK, mode = ResourceAccessMode.READ)
   public class B_IndexTest {
 
     /**
@@ -269,10 +276,11 @@ public class CrawlOutputTest {
       String filename = String.format("index-%s.json", name);
 
       Path actual = TestUtilities.ACTUAL_PATH.resolve(filename).normalize();
-      Path expected = TestUtilities.EXPECTED_PATH.resolve("index-crawl").resolve(filename).normalize();
+      Path expected = LocalWebServer.expected(
+          TestUtilities.EXPECTED_PATH.resolve("index-crawl").resolve(filename).normalize());
 
       String[] args = {
-          "-url", link,
+          "-url", LocalWebServer.link(link),
           "-limit", Integer.toString(limit),
           "-threads", Integer.toString(5),
           "-index", actual.normalize().toString()};
@@ -289,6 +297,7 @@ public class CrawlOutputTest {
    */
   @Nested
   @TestMethodOrder(OrderAnnotation.class)
+  @ResourceLock(value = TestUtilities.RUNTIME_LOCK, mode = ResourceAccessMode.READ)
   public class C_SearchTest {
 
     /**
@@ -370,10 +379,11 @@ public class CrawlOutputTest {
       String filename = String.format("results-%s-%s.json", type, name);
 
       Path actual = TestUtilities.ACTUAL_PATH.resolve(filename).normalize();
-      Path expected = TestUtilities.EXPECTED_PATH.resolve("search-crawl").resolve(filename).normalize();
+      Path expected = LocalWebServer.expected(
+          TestUtilities.EXPECTED_PATH.resolve("search-crawl").resolve(filename).normalize());
 
       String[] args = {
-          "-url", link,
+          "-url", LocalWebServer.link(link),
           "-limit", Integer.toString(limit),
           "-threads", Integer.toString(5),
           "-query", TestUtilities.QUERY_INPUT.resolve(query).toString(),
@@ -390,6 +400,7 @@ public class CrawlOutputTest {
    */
   @Nested
   @TestMethodOrder(OrderAnnotation.class)
+  @ResourceLock(TestUtilities.RUNTIME_LOCK)
   public class D_RuntimeTest {
     /**
      * Tests that code runs faster with {@value ThreadRuntimeTest#THREADS} threads is faster versus just 1 worker
@@ -398,7 +409,7 @@ public class CrawlOutputTest {
     @Order(1)
     @Test
     public void testSearchMultithreaded() {
-      String link = "https://www.cs.usfca.edu/~cs212/docs/jdk-13.0.2_doc-all/api/allclasses-index.html";
+      String link = LocalWebServer.link("https://www.cs.usfca.edu/~cs212/docs/jdk-13.0.2_doc-all/api/allclasses-index.html");
       String query = TestUtilities.QUERY_INPUT.resolve("complex.txt").toString();
 
       String[] args1 = {"-url", link, "-limit", Integer.toString(50), "-query", query,
@@ -415,9 +426,9 @@ public class CrawlOutputTest {
       TestUtilities.testExceptionTimeout(args2, TIMEOUT);
 
       // then test the timing
-      assertTimeoutPreemptively(ThreadRuntimeTest.LONG_TIMEOUT, () -> {
-        double result = ThreadRuntimeTest.compare("1 Worker", args1, String.valueOf(ThreadRuntimeTest.THREADS) + " Workers", args2);
-        assertTrue(result > 0, () -> String.format(ThreadRuntimeTest.SPEEDUP_FORMAT, "1 worker", -result, ThreadRuntimeTest.THREADS));
+      assertTimeoutPreemptively(ThreadRuntimeTest.SPEEDUP_TIMEOUT, () -> {
+        SpeedupComparison result = ThreadRuntimeTest.compare("1 Worker", args1, String.valueOf(ThreadRuntimeTest.THREADS) + " Workers", args2);
+        assertTrue(result.passed(), () -> String.format(ThreadRuntimeTest.SPEEDUP_FORMAT, "1 worker", result));
       });
     }
   }
@@ -0,0 +1,332 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Reuses the output of earlier {@link Driver} runs across tests with the same input. Every time
+ * {@link Driver} runs, the requested output is also written to the cache. A later test that asks
+ * for the same output with the same arguments gets a copy of the cached file instead of running
+ * {@link Driver} again. Any request that is not fully cached, such as a new query file for the same
+ * input, still runs {@link Driver} in full, so the saving only covers repeated runs.
+ *
+ * The cache key includes every argument except the output files, including the number of threads,
+ * plus the number, size, and latest modification time of the input files, so editing the input
+ * invalidates the cache. Runs with the -url flag are only cached when crawling the
+ * {@link LocalWebServer} snapshot, since the remote web pages could change. Runs that are missing
+ * a required flag value or that write any other file, such as a saved index, always run
+ * {@link Driver} directly. Tests that run {@link Driver} again on purpose to check that the output
+ * stays consistent skip the cache as well.
+ *
+ * Enabled by setting the "driver.reuse" property to true. This speeds up the test suites, but does
+ * not check that {@link Driver} produces each output on its own.
+ *
+ * @author CS 212 Software Development
+ * @author University of San Francisco
+ * @version Spring 2020
+ */
+public class DriverCache {
+
+  /** Whether to reuse output across tests, set by the "driver.reuse" property. */
+  public static final boolean ENABLED = Boolean.getBoolean("driver.reuse");
+
+  /** Location of the cached output files. */
+  public static final Path CACHE_PATH = TestUtilities.ACTUAL_PATH.resolve("driver-cache");
+
+  /** The flags that produce output from the index alone. */
+  private static final String[] BUILD_OUTPUTS = {"-index", "-counts"};
+
+  /** The flag that produces output from a search. */
+  private static final String RESULTS = "-results";
+
+  /** The flags that only affect the search, not the index. */
+  private static final String[] SEARCH_FLAGS = {"-query", "-exact"};
+
+  /** The flags that must be followed by a value for the run to be cached. */
+  private static final String[] VALUE_FLAGS = {"-path", "-url", "-query", "-threads", "-limit"};
+
+  /** The flags that write or change files the cache cannot reproduce. */
+  private static final String[] UNCACHED_FLAGS = {"-save", "-incremental", "-metrics"};
+
+  /** The cached files, keyed by the output flag and cache key. */
+  private static final Map<String, Path> CACHED = new HashMap<>();
+
+  /**
+   * Runs {@link Driver} with the provided arguments, or copies the requested output from an earlier
+   * run with the same input.
+   *
+   * @param args arguments to pass to {@link Driver}
+   * @throws Exception if {@link Driver} throws an exception
+   */
+  public static synchronized void run(String[] args) throws Exception {
+    Map<String, String> flags = parse(args);
+
+    if (!isCacheable(flags)) {
+      Driver.main(args);
+      return;
+    }
+
+    String build = key(flags, false);
+    String search = key(flags, true);
+
+    // decide which cache key each requested output belongs to
+    Map<String, String> requested = new LinkedHashMap<>();
+
+    for (String flag : BUILD_OUTPUTS) {
+      if (flags.containsKey(flag)) {
+        requested.put(flag, build);
+      }
+    }
+
+    if (flags.containsKey(RESULTS)) {
+      requested.put(RESULTS, search);
+    }
+
+    if (requested.isEmpty()) {
+      Driver.main(args);
+      return;
+    }
+
+    if (!isCached(requested)) {
+      generate(flags, requested);
+    }
+
+    for (Map.Entry<String, String> entry : requested.entrySet()) {
+      String output = flags.get(entry.getKey());
+      Path target = Path.of(output == null ? defaultName(entry.getKey()) : output);
+      Path cached = CACHED.get(entry.getKey() + " " + entry.getValue());
+
+      if (cached != null) {
+        if (target.getParent() != null) {
+          Files.createDirectories(target.getParent());
+        }
+
+        Files.copy(cached, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+  }
+
+  /**
+   * Runs {@link Driver} with the input arguments and every requested output flag pointing into the
+   * cache.
+   *
+   * @param flags the parsed arguments
+   * @param requested the cache key for each requested output flag
+   * @throws Exception if {@link Driver} throws an exception
+   */
+  private static void generate(Map<String, String> flags, Map<String, String> requested)
+      throws Exception {
+    Files.createDirectories(CACHE_PATH);
+    Map<String, Path> outputs = new LinkedHashMap<>();
+
+    for (Map.Entry<String, String> entry : requested.entrySet()) {
+      outputs.put(entry.getKey() + " " + entry.getValue(),
+          cacheFile(entry.getKey(), entry.getValue()));
+    }
+
+    List<String> args = new ArrayList<>();
+
+    for (Map.Entry<String, String> entry : flags.entrySet()) {
+      if (!isOutput(entry.getKey())) {
+        args.add(entry.getKey());
+
+        if (entry.getValue() != null) {
+          args.add(entry.getValue());
+        }
+      }
+    }
+
+    for (Map.Entry<String, Path> entry : outputs.entrySet()) {
+      Files.deleteIfExists(entry.getValue());
+      args.add(entry.getKey().split(" ", 2)[0]);
+      args.add(entry.getValue().toString());
+    }
+
+    Driver.main(args.toArray(String[]::new));
+
+    for (Map.Entry<String, Path> entry : outputs.entrySet()) {
+      if (Files.isReadable(entry.getValue())) {
+        CACHED.put(entry.getKey(), entry.getValue());
+      } else {
+        CACHED.remove(entry.getKey());
+      }
+    }
+  }
+
+  /**
+   * Returns whether the output of a run may be cached. The run must read a local input, have a
+   * value for every flag that requires one, and not write any file other than the output files.
+   *
+   * @param flags the parsed arguments
+   * @return true if the output of the run may be cached
+   */
+  private static boolean isCacheable(Map<String, String> flags) {
+    for (String flag : VALUE_FLAGS) {
+      if (flags.containsKey(flag) && flags.get(flag) == null) {
+        return false;
+      }
+    }
+
+    for (String flag : UNCACHED_FLAGS) {
+      if (flags.containsKey(flag)) {
+        return false;
+      }
+    }
+
+    if (flags.containsKey("-url")) {
+      return LocalWebServer.isEnabled() && !flags.containsKey("-path");
+    }
+
+    return flags.containsKey("-path");
+  }
+
+  /**
+   * Returns whether every requested output is in the cache.
+   *
+   * @param requested the cache key for each requested output flag
+   * @return true if every requested output is cached
+   */
+  private static boolean isCached(Map<String, String> requested) {
+    return requested.entrySet().stream()
+        .map(entry -> CACHED.get(entry.getKey() + " " + entry.getValue()))
+        .allMatch(path -> path != null && Files.isReadable(path));
+  }
+
+  /**
+   * Generates the cache key for the arguments and input files.
+   *
+   * @param flags the parsed arguments
+   * @param search whether to include the flags that only affect the search
+   * @return the cache key
+   * @throws IOException if unable to read the input files
+   */
+  private static String key(Map<String, String> flags, boolean search) throws IOException {
+    StringBuilder key = new StringBuilder();
+
+    flags.entrySet().stream()
+        .filter(entry -> !isOutput(entry.getKey()))
+        .filter(entry -> search || !List.of(SEARCH_FLAGS).contains(entry.getKey()))
+        .sorted(Map.Entry.comparingByKey())
+        .forEach(entry -> key.append(entry.getKey()).append(' ').append(entry.getValue())
+            .append(' '));
+
+    if (flags.containsKey("-url")) {
+      key.append(fingerprint(Path.of(System.getProperty("crawl.snapshot"))));
+    } else {
+      key.append(fingerprint(Path.of(flags.get("-path"))));
+    }
+
+    if (search && flags.get("-query") != null) {
+      key.append(' ').append(fingerprint(Path.of(flags.get("-query"))));
+    }
+
+    return key.toString();
+  }
+
+  /**
+   * Summarizes the files in a path so that any change to them changes the cache key.
+   *
+   * @param path the file or directory
+   * @return the number of files, total size, and latest modification time
+   * @throws IOException if unable to read the files
+   */
+  private static String fingerprint(Path path) throws IOException {
+    if (!Files.exists(path)) {
+      return "missing";
+    }
+
+    long[] summary = new long[3];
+
+    try (Stream<Path> files = Files.walk(path)) {
+      files.forEach(file -> {
+        try {
+          BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+          summary[0]++;
+          summary[1] += attributes.size();
+          summary[2] = Math.max(summary[2], attributes.lastModifiedTime().toMillis());
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+
+    return summary[0] + ":" + summary[1] + ":" + summary[2];
+  }
+
+  /**
+   * Parses the arguments into flags and values, where a value is anything not starting with a dash
+   * that follows a flag.
+   *
+   * @param args the arguments to parse
+   * @return the flags and their values, which may be null
+   */
+  private static Map<String, String> parse(String[] args) {
+    Map<String, String> flags = new LinkedHashMap<>();
+
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].startsWith("-")) {
+        boolean value = i + 1 < args.length && !args[i + 1].startsWith("-");
+        flags.put(args[i], value ? args[++i] : null);
+      }
+    }
+
+    return flags;
+  }
+
+  /**
+   * Returns whether the flag names an output file.
+   *
+   * @param flag the flag to test
+   * @return true if the flag is an output flag
+   */
+  private static boolean isOutput(String flag) {
+    return flag.equals(RESULTS) || List.of(BUILD_OUTPUTS).contains(flag);
+  }
+
+  /**
+   * Returns the default output file name for an output flag.
+   *
+   * @param flag the output flag
+   * @return the default file name
+   */
+  private static String defaultName(String flag) {
+    return flag.substring(1) + ".json";
+  }
+
+  /**
+   * Returns the cache file for an output flag and cache key.
+   *
+   * @param flag the output flag
+   * @param key the cache key
+   * @return the path to the cache file
+   */
+  private static Path cacheFile(String flag, String key) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      byte[] hash = digest.digest((flag + " " + key).getBytes(StandardCharsets.UTF_8));
+
+      StringBuilder name = new StringBuilder(flag.substring(1)).append('-');
+
+      for (byte value : hash) {
+        name.append(String.format("%02x", value));
+      }
+
+      return CACHE_PATH.resolve(name.append(".json").toString());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,172 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import com.sun.management.OperatingSystemMXBean;
+
+/**
+ * Collects the per-phase metrics of a single {@link Driver} run. The harness passes the
+ * {@value #FLAG} flag with an output path, and {@link Driver} is expected to write a JSON file with
+ * one object per phase in {@link #PHASES}, for example:
+ *
+ * <pre>
+ * {
+ *   "traverse": {"wall_ms": 12.5, "cpu_ms": 10.1, "bytes": 0, "words": 0, "allocated": 1048576},
+ *   "parse": {"wall_ms": 210.3, "cpu_ms": 580.2, "bytes": 33554432, "words": 5120000, ...},
+ *   ...
+ * }
+ * </pre>
+ *
+ * A concurrent index may also report a "locks" object with how often and how long workers waited
+ * to read or write the index, for example {"acquired": 120000, "contended": 340, "wait_ms": 85.2},
+ * optionally broken down by stripe in a "stripes" array. A search result cache may report a
+ * "cache" object the same way, for example {"hits": 240, "misses": 81, "evictions": 12,
+ * "entries": 64, "bytes": 524288}.
+ *
+ * The harness also measures the total wall time, process CPU time, and input size around the run,
+ * so there is something to compare against even if the -metrics flag is not supported yet.
+ *
+ * @author CS 212 Software Development
+ * @author University of San Francisco
+ * @version Spring 2020
+ */
+public class DriverMetrics {
+
+  /** The flag passed to {@link Driver} with the path of the metrics file. */
+  public static final String FLAG = "-metrics";
+
+  /** The phases {@link Driver} is expected to report. */
+  public static final String[] PHASES = {"traverse", "parse", "stem", "index", "search", "write"};
+
+  /** Number of nanoseconds in a millisecond. */
+  private static final double MILLISECOND = TimeUnit.MILLISECONDS.toNanos(1);
+
+  /** Number of bytes in a megabyte. */
+  private static final double MEGABYTE = 1024 * 1024;
+
+  /** The label of the run. */
+  public final String label;
+
+  /** The arguments of the run, including the {@value #FLAG} flag. */
+  public final String[] args;
+
+  /** The metrics file written by {@link Driver}. */
+  public final Path file;
+
+  /** The total wall time of the run in nanoseconds. */
+  public final long wall;
+
+  /** The total process CPU time of the run in nanoseconds. */
+  public final long cpu;
+
+  /** The total size of the input files in bytes. */
+  public final long input;
+
+  /**
+   * Initializes the metrics of a completed run.
+   *
+   * @param label the label of the run
+   * @param args the arguments of the run
+   * @param file the metrics file written by {@link Driver}
+   * @param wall the total wall time in nanoseconds
+   * @param cpu the total process CPU time in nanoseconds
+   * @param input the total size of the input files in bytes
+   */
+  private DriverMetrics(String label, String[] args, Path file, long wall, long cpu, long input) {
+    this.label = label;
+    this.args = args;
+    this.file = file;
+    this.wall = wall;
+    this.cpu = cpu;
+    this.input = input;
+  }
+
+  /**
+   * Runs {@link Driver} once with the {@value #FLAG} flag added to the arguments, writing the
+   * metrics to a file named after the label in the actual output directory.
+   *
+   * @param label the label of the run
+   * @param args the arguments to run
+   * @return the collected metrics
+   * @throws Exception if {@link Driver} throws an exception
+   */
+  public static DriverMetrics collect(String label, String[] args) throws Exception {
+    args = TestUtilities.withExtraArgs(args);
+    String name = label.toLowerCase().replaceAll("[^a-z0-9]+", "-");
+    Path file = TestUtilities.ACTUAL_PATH.resolve("metrics-" + name + ".json");
+
+    Files.createDirectories(TestUtilities.ACTUAL_PATH);
+    Files.deleteIfExists(file);
+
+    String[] metrics = new String[args.length + 2];
+    System.arraycopy(args, 0, metrics, 0, args.length);
+    metrics[args.length] = FLAG;
+    metrics[args.length + 1] = file.toString();
+
+    OperatingSystemMXBean os =
+        (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
+    long cpu = os.getProcessCpuTime();
+    long start = System.nanoTime();
+    Driver.main(metrics);
+    long wall = System.nanoTime() - start;
+    cpu = os.getProcessCpuTime() - cpu;
+
+    return new DriverMetrics(label, metrics, file, wall, cpu, inputSize(args));
+  }
+
+  /**
+   * Returns the total size of the files in the -path argument, if any.
+   *
+   * @param args the arguments of the run
+   * @return the total size in bytes
+   * @throws IOException if unable to read the files
+   */
+  private static long inputSize(String[] args) throws IOException {
+    for (int i = 0; i < args.length - 1; i++) {
+      if (args[i].equals("-path") && Files.exists(Path.of(args[i + 1]))) {
+        try (Stream<Path> files = Files.walk(Path.of(args[i + 1]))) {
+          return files.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length())
+              .sum();
+        }
+      }
+    }
+
+    return 0;
+  }
+
+  /**
+   * Returns the per-phase metrics written by {@link Driver}.
+   *
+   * @return the contents of the metrics file, or null if it was not written
+   * @throws IOException if unable to read the metrics file
+   */
+  public String phases() throws IOException {
+    return Files.isReadable(file) ? Files.readString(file, StandardCharsets.UTF_8) : null;
+  }
+
+  /**
+   * Prints the totals measured by the harness followed by the per-phase metrics.
+   *
+   * @throws IOException if unable to read the metrics file
+   */
+  public void print() throws IOException {
+    System.out.printf("%n```%nMetrics: %s%n", label);
+    System.out.printf("Total: %.3f ms wall, %.3f ms cpu (%.2f cores), %.2f MB input%n",
+        wall / MILLISECOND, cpu / MILLISECOND, (double) cpu / Math.max(1, wall),
+        input / MEGABYTE);
+
+    String phases = phases();
+
+    if (phases == null) {
+      System.out.printf("No per-phase metrics written to %s.%n", file);
+    } else {
+      System.out.println(phases.strip());
+    }
+
+    System.out.printf("```%n");
+  }
+}
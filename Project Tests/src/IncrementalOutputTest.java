@@ -0,0 +1,246 @@
+import static org.junit.jupiter.api.Assertions.fail;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.parallel.ResourceAccessMode;
+import org.junit.jupiter.api.parallel.ResourceLock;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * JUnit tests for incrementally updating a saved index with the {@value #INCREMENTAL} flag. Each
+ * test copies the simple subdirectory, saves the index for the copy, changes the copy, and then
+ * updates the saved index. The index, counts, and search output after the update must be exactly
+ * the same as the output of a full rebuild of the changed copy.
+ *
+ * The update must notice changes using more than the file size and modification time, since one of
+ * the tests changes the contents without changing either.
+ *
+ * @author CS 212 Software Development
+ * @author University of San Francisco
+ * @version Spring 2020
+ * @see PersistenceOutputTest
+ */
+@TestMethodOrder(OrderAnnotation.class)
+@ResourceLock(value = TestUtilities.RUNTIME_LOCK, mode = ResourceAccessMode.READ)
+public class IncrementalOutputTest {
+
+  /**
+   * The flag used with {@link PersistenceOutputTest#LOAD} and -path to only parse the files that
+   * were added or changed since the index was saved, and remove the files that were deleted.
+   */
+  public static final String INCREMENTAL = "-incremental";
+
+  /** The directory to copy and change. */
+  public static final Path SOURCE = TestUtilities.TEXT_INPUT.resolve("simple");
+
+  /** Where to create the copies. */
+  public static final Path WORKING = TestUtilities.ACTUAL_PATH.resolve("incremental");
+
+  /** The output flags and file name prefixes to compare. */
+  private static final String[][] OUTPUTS = {
+      {"-index", "index"}, {"-counts", "counts"}, {"-results", "results"}};
+
+  /**
+   * Copies the simple subdirectory, saves the index, applies the change, updates the saved index,
+   * and compares the output to a full rebuild. Designed to be used inside a JUnit test.
+   *
+   * @param change the name of the change to apply
+   * @throws IOException if unable to copy or change the files
+   */
+  public static void test(String change) throws IOException {
+    Path directory = WORKING.resolve(change);
+    Path input = directory.resolve("simple");
+    Path saved = directory.resolve("saved.idx");
+    String query = TestUtilities.QUERY_INPUT.resolve("simple.txt").toString();
+
+    delete(directory);
+    copy(SOURCE, input);
+
+    TestUtilities.checkExceptions(new String[] {
+        "-path", input.toString(), PersistenceOutputTest.SAVE, saved.toString()});
+
+    change(change, input);
+
+    String[] incremental = {
+        "-path", input.toString(), PersistenceOutputTest.LOAD, saved.toString(), INCREMENTAL,
+        PersistenceOutputTest.SAVE, saved.toString(), "-query", query,
+        "-index", directory.resolve("index-incremental.json").toString(),
+        "-counts", directory.resolve("counts-incremental.json").toString(),
+        "-results", directory.resolve("results-incremental.json").toString()};
+
+    String[] rebuild = {
+        "-path", input.toString(), "-query", query,
+        "-index", directory.resolve("index-rebuild.json").toString(),
+        "-counts", directory.resolve("counts-rebuild.json").toString(),
+        "-results", directory.resolve("results-rebuild.json").toString()};
+
+    TestUtilities.checkExceptions(incremental);
+    TestUtilities.checkExceptions(rebuild);
+
+    for (String[] output : OUTPUTS) {
+      Path actual = directory.resolve(output[1] + "-incremental.json");
+      Path expected = directory.resolve(output[1] + "-rebuild.json");
+
+      if (!Files.isReadable(actual) || !Files.isReadable(expected)) {
+        fail(TestUtilities.errorMessage(incremental, actual, expected,
+            "Unable to read " + output[0] + " output."));
+      }
+
+      String message = TestUtilities.compareFiles(actual, expected);
+
+      if (message != null) {
+        fail(TestUtilities.errorMessage(incremental, actual, expected, message));
+      }
+    }
+
+    delete(directory);
+  }
+
+  /**
+   * Applies a change to the copy of the simple subdirectory.
+   *
+   * @param change the name of the change to apply
+   * @param input the copy of the simple subdirectory
+   * @throws IOException if unable to change the files
+   */
+  public static void change(String change, Path input) throws IOException {
+    Path hello = input.resolve("hello.txt");
+    FileTime time = Files.getLastModifiedTime(hello);
+
+    switch (change) {
+      case "unchanged":
+        break;
+      case "modified":
+        Files.writeString(hello, "\ncapybara hello\n", StandardCharsets.UTF_8,
+            StandardOpenOption.APPEND);
+        Files.setLastModifiedTime(hello, FileTime.fromMillis(time.toMillis() + 60_000));
+        break;
+      case "same-size":
+        // same size and modification time, so only the contents can reveal the change
+        String text = Files.readString(hello, StandardCharsets.UTF_8);
+        Files.writeString(hello, text.replace("world", "whirl"), StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(hello, time);
+        break;
+      case "touched":
+        Files.setLastModifiedTime(hello, FileTime.fromMillis(time.toMillis() + 60_000));
+        break;
+      case "added":
+        Files.copy(input.resolve("animals.text"), input.resolve("a").resolve("added.txt"));
+        break;
+      case "deleted":
+        Files.delete(input.resolve("words.tExT"));
+        break;
+      case "renamed":
+        Files.move(input.resolve("capitals.txt"), input.resolve("renamed.txt"));
+        break;
+      case "emptied":
+        Files.writeString(input.resolve("position.teXt"), "", StandardCharsets.UTF_8);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown change: " + change);
+    }
+  }
+
+  /**
+   * Copies a directory and everything inside it.
+   *
+   * @param source the directory to copy
+   * @param target where to create the copy
+   * @throws IOException if unable to copy the files
+   */
+  private static void copy(Path source, Path target) throws IOException {
+    try (Stream<Path> paths = Files.walk(source)) {
+      paths.forEach(path -> {
+        try {
+          Path copy = target.resolve(source.relativize(path).toString());
+
+          if (Files.isDirectory(path)) {
+            Files.createDirectories(copy);
+          } else {
+            Files.copy(path, copy, StandardCopyOption.COPY_ATTRIBUTES);
+          }
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Deletes a directory and everything inside it, if it exists.
+   *
+   * @param directory the directory to delete
+   * @throws IOException if unable to delete the files
+   */
+  private static void delete(Path directory) throws IOException {
+    if (!Files.exists(directory)) {
+      return;
+    }
+
+    try (Stream<Path> paths = Files.walk(directory)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+        try {
+          Files.delete(path);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Tests that updating the saved index without any changes produces the same output.
+   *
+   * @param change the name of the change to apply
+   * @throws IOException if unable to copy the files
+   */
+  @Order(1)
+  @ParameterizedTest
+  @ValueSource(strings = {"unchanged", "touched"})
+  public void testUnchanged(String change) throws IOException {
+    test(change);
+  }
+
+  /**
+   * Tests that updating the saved index after changing the contents of a file produces the same
+   * output as a full rebuild.
+   *
+   * @param change the name of the change to apply
+   * @throws IOException if unable to copy or change the files
+   */
+  @Order(2)
+  @ParameterizedTest
+  @ValueSource(strings = {"modified", "same-size", "emptied"})
+  public void testModified(String change) throws IOException {
+    test(change);
+  }
+
+  /**
+   * Tests that updating the saved index after adding, deleting, or renaming a file produces the
+   * same output as a full rebuild.
+   *
+   * @param change the name of the change to apply
+   * @throws IOException if unable to copy or change the files
+   */
+  @Order(3)
+  @ParameterizedTest
+  @ValueSource(strings = {"added", "deleted", "renamed"})
+  public void testAddedDeleted(String change) throws IOException {
+    test(change);
+  }
+}
@@ -6,6 +6,8 @@ import org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.parallel.ResourceAccessMode;
+import org.junit.jupiter.api.parallel.ResourceLock;
 
 /**
  * Tests that code runs without throwing exceptions.
@@ -15,6 +17,8 @@ import org.junit.jupiter.api.TestMethodOrder;
  * @version Spring 2020
  */
 @TestMethodOrder(OrderAnnotation.class)
+@ResourceLock(value = TestUtilities.RUNTIME_LOCK, mode = ResourceAccessMode.READ)
+@ResourceLock(TestUtilities.DEFAULT_OUTPUT_LOCK)
 public class IndexExceptionsTest {
 
   /**
@@ -0,0 +1,468 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Compares two JSON files by structure instead of by line. Both files are tokenized as streams, so
+ * memory use only depends on how deeply the JSON is nested, not on the file size. Whitespace and
+ * formatting are ignored, numbers are compared by value, and path separators in strings are
+ * treated as forward slashes.
+ *
+ * Differences are reported with the path to the differing value, such as the word, location, and
+ * position in an inverted index or the query, result, and member in search results.
+ *
+ * @author CS 212 Software Development
+ * @author University of San Francisco
+ * @version Spring 2020
+ */
+public class JsonComparator {
+
+  /** The types of JSON tokens. */
+  private enum Type {
+    /** The start of an object. */
+    BEGIN_OBJECT,
+    /** The end of an object. */
+    END_OBJECT,
+    /** The start of an array. */
+    BEGIN_ARRAY,
+    /** The end of an array. */
+    END_ARRAY,
+    /** The separator between a key and value. */
+    COLON,
+    /** The separator between members or elements. */
+    COMMA,
+    /** A string, which may be a key or value. */
+    STRING,
+    /** A number. */
+    NUMBER,
+    /** The literal values true, false, or null. */
+    LITERAL,
+    /** The end of the file. */
+    END
+  }
+
+  /**
+   * Compares two JSON files.
+   *
+   * @param actual path to the actual output
+   * @param expected path to the expected output
+   * @return a description of the first difference, or null if the files are equal
+   * @throws IOException if an I/O error occurs
+   */
+  public static String compare(Path actual, Path expected) throws IOException {
+    try (BufferedReader reader1 = Files.newBufferedReader(actual, StandardCharsets.UTF_8);
+         BufferedReader reader2 = Files.newBufferedReader(expected, StandardCharsets.UTF_8)) {
+      Tokenizer tokens1 = new Tokenizer(reader1);
+      Tokenizer tokens2 = new Tokenizer(reader2);
+
+      // each frame is the key or index of the value currently being compared
+      Deque<Frame> path = new ArrayDeque<>();
+
+      while (true) {
+        Type type1;
+        Type type2;
+
+        try {
+          type1 = tokens1.next();
+        } catch (IllegalStateException e) {
+          return "Invalid JSON in actual output at " + tokens1.location() + ": " + e.getMessage();
+        }
+
+        try {
+          type2 = tokens2.next();
+        } catch (IllegalStateException e) {
+          return "Invalid JSON in expected output at " + tokens2.location() + ": "
+              + e.getMessage();
+        }
+
+        if (type1 != type2 || !equals(type1, tokens1.text, tokens2.text)) {
+          return String.format(
+              "Difference at %s (actual %s, expected %s): found %s but expected %s",
+              describe(path), tokens1.location(), tokens2.location(), tokens1.describe(type1),
+              tokens2.describe(type2));
+        }
+
+        Frame frame = path.peek();
+
+        switch (type1) {
+          case BEGIN_OBJECT:
+          case BEGIN_ARRAY:
+            path.push(new Frame(type1 == Type.BEGIN_OBJECT));
+            break;
+          case END_OBJECT:
+          case END_ARRAY:
+            path.pop();
+            break;
+          case COMMA:
+            if (frame != null) {
+              frame.next();
+            }
+            break;
+          case COLON:
+            if (frame != null) {
+              frame.key = false;
+            }
+            break;
+          case STRING:
+            if (frame != null && frame.object && frame.key) {
+              frame.name = tokens1.text;
+            }
+            break;
+          case END:
+            return null;
+          default:
+            break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Compares the text of two tokens of the same type.
+   *
+   * @param type the type of both tokens
+   * @param text1 the text of the first token
+   * @param text2 the text of the second token
+   * @return true if the tokens are equal
+   */
+  private static boolean equals(Type type, String text1, String text2) {
+    if (text1 == null || text1.equals(text2)) {
+      return true;
+    }
+
+    switch (type) {
+      case STRING:
+        return normalize(text1).equals(normalize(text2));
+      case NUMBER:
+        try {
+          return new BigDecimal(text1).compareTo(new BigDecimal(text2)) == 0;
+        } catch (NumberFormatException e) {
+          return text1.equals(text2);
+        }
+      case LITERAL:
+        return false;
+      default:
+        return true;
+    }
+  }
+
+  /**
+   * Treats the platform path separator as a forward slash.
+   *
+   * @param text the text to normalize
+   * @return the normalized text
+   */
+  private static String normalize(String text) {
+    return File.separatorChar == '/' ? text : text.replace(File.separatorChar, '/');
+  }
+
+  /**
+   * Describes the path to the current value, such as "capybara" &gt; "hello.txt" &gt; [2].
+   *
+   * @param path the stack of frames with the innermost frame first
+   * @return the description of the path
+   */
+  private static String describe(Deque<Frame> path) {
+    if (path.isEmpty()) {
+      return "the top level";
+    }
+
+    List<String> parts = new ArrayList<>();
+    path.descendingIterator().forEachRemaining(frame -> parts.add(frame.toString()));
+    return String.join(" > ", parts);
+  }
+
+  /**
+   * The position within an object or array.
+   */
+  private static class Frame {
+
+    /** Whether this frame is an object (true) or an array (false). */
+    private final boolean object;
+
+    /** Whether the next string in an object is a key. */
+    private boolean key;
+
+    /** The current key in an object. */
+    private String name;
+
+    /** The current index in an array. */
+    private int index;
+
+    /**
+     * Initializes a frame.
+     *
+     * @param object whether this frame is an object (true) or an array (false)
+     */
+    public Frame(boolean object) {
+      this.object = object;
+      this.key = true;
+      this.name = null;
+      this.index = 0;
+    }
+
+    /**
+     * Moves to the next member or element.
+     */
+    public void next() {
+      key = true;
+      index++;
+    }
+
+    @Override
+    public String toString() {
+      if (object) {
+        return name == null ? "{}" : '"' + name + '"';
+      }
+
+      return "[" + index + "]";
+    }
+  }
+
+  /**
+   * Splits a stream of characters into JSON tokens.
+   */
+  private static class Tokenizer {
+
+    /** The source of characters. */
+    private final Reader reader;
+
+    /** The next character, or -1 at the end of the file, or -2 if not read yet. */
+    private int peek;
+
+    /** The text of the last string, number, or literal token. */
+    private String text;
+
+    /** The line number of the last token. */
+    private int line;
+
+    /** The column of the last token. */
+    private int column;
+
+    /** The line number of the next character. */
+    private int nextLine;
+
+    /** The column of the next character. */
+    private int nextColumn;
+
+    /**
+     * Initializes the tokenizer.
+     *
+     * @param reader the source of characters
+     */
+    public Tokenizer(Reader reader) {
+      this.reader = reader;
+      this.peek = -2;
+      this.text = null;
+      this.nextLine = 1;
+      this.nextColumn = 1;
+    }
+
+    /**
+     * Returns the next character without consuming it.
+     *
+     * @return the next character, or -1 at the end of the file
+     * @throws IOException if an I/O error occurs
+     */
+    private int peek() throws IOException {
+      if (peek == -2) {
+        peek = reader.read();
+      }
+
+      return peek;
+    }
+
+    /**
+     * Consumes and returns the next character.
+     *
+     * @return the next character, or -1 at the end of the file
+     * @throws IOException if an I/O error occurs
+     */
+    private int read() throws IOException {
+      int value = peek();
+      peek = -2;
+
+      if (value == '\n') {
+        nextLine++;
+        nextColumn = 1;
+      } else if (value >= 0) {
+        nextColumn++;
+      }
+
+      return value;
+    }
+
+    /**
+     * Reads the next token.
+     *
+     * @return the type of the next token
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if the input is not valid JSON
+     */
+    public Type next() throws IOException {
+      while (peek() >= 0 && Character.isWhitespace(peek())) {
+        read();
+      }
+
+      line = nextLine;
+      column = nextColumn;
+
+      int value = read();
+
+      switch (value) {
+        case -1:
+          return Type.END;
+        case '{':
+          return Type.BEGIN_OBJECT;
+        case '}':
+          return Type.END_OBJECT;
+        case '[':
+          return Type.BEGIN_ARRAY;
+        case ']':
+          return Type.END_ARRAY;
+        case ':':
+          return Type.COLON;
+        case ',':
+          return Type.COMMA;
+        case '"':
+          text = readString();
+          return Type.STRING;
+        default:
+          break;
+      }
+
+      StringBuilder builder = new StringBuilder();
+      builder.append((char) value);
+
+      while (peek() >= 0 && "{}[]:,\"".indexOf(peek()) < 0 && !Character.isWhitespace(peek())) {
+        builder.append((char) read());
+      }
+
+      text = builder.toString();
+
+      if (text.equals("true") || text.equals("false") || text.equals("null")) {
+        return Type.LITERAL;
+      }
+
+      if (value == '-' || (value >= '0' && value <= '9')) {
+        return Type.NUMBER;
+      }
+
+      throw new IllegalStateException("Unexpected \"" + text + "\"");
+    }
+
+    /**
+     * Reads the rest of a string after the opening quote, decoding escape sequences.
+     *
+     * @return the decoded string
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if the string is not terminated
+     */
+    private String readString() throws IOException {
+      StringBuilder builder = new StringBuilder();
+
+      while (true) {
+        int value = read();
+
+        if (value < 0) {
+          throw new IllegalStateException("Unterminated string");
+        }
+
+        if (value == '"') {
+          return builder.toString();
+        }
+
+        if (value != '\\') {
+          builder.append((char) value);
+          continue;
+        }
+
+        int escape = read();
+
+        switch (escape) {
+          case 'n':
+            builder.append('\n');
+            break;
+          case 't':
+            builder.append('\t');
+            break;
+          case 'r':
+            builder.append('\r');
+            break;
+          case 'b':
+            builder.append('\b');
+            break;
+          case 'f':
+            builder.append('\f');
+            break;
+          case 'u':
+            char[] digits = new char[4];
+
+            for (int i = 0; i < digits.length; i++) {
+              digits[i] = (char) read();
+            }
+
+            try {
+              builder.append((char) Integer.parseInt(new String(digits), 16));
+            } catch (NumberFormatException e) {
+              throw new IllegalStateException("Invalid escape \\u" + new String(digits));
+            }
+            break;
+          case -1:
+            throw new IllegalStateException("Unterminated string");
+          default:
+            builder.append((char) escape);
+            break;
+        }
+      }
+    }
+
+    /**
+     * Describes the last token for error messages.
+     *
+     * @param type the type of the last token
+     * @return the description of the token
+     */
+    public String describe(Type type) {
+      switch (type) {
+        case STRING:
+          return '"' + text + '"';
+        case NUMBER:
+        case LITERAL:
+          return text;
+        case END:
+          return "end of file";
+        case BEGIN_OBJECT:
+          return "{";
+        case END_OBJECT:
+          return "}";
+        case BEGIN_ARRAY:
+          return "[";
+        case END_ARRAY:
+          return "]";
+        case COLON:
+          return ":";
+        default:
+          return ",";
+      }
+    }
+
+    /**
+     * Returns the location of the last token.
+     *
+     * @return the line and column of the last token
+     */
+    public String location() {
+      return "line " + line + ", column " + column;
+    }
+  }
+}
@@ -0,0 +1,336 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Compares two files line-by-line without decoding them into strings. Lines are compared as UTF-8
+ * bytes after removing leading and trailing whitespace and treating the platform path separator as
+ * a forward slash. Extra blank lines at the end of either file are ignored. Files are streamed in
+ * fixed-size chunks, so memory use does not depend on the file size.
+ *
+ * These are the same rules as comparing the lines after {@link String#replace(CharSequence,
+ * CharSequence)} and {@link String#strip()}. Only the rare lines that start or end with non-ASCII
+ * bytes, which might be Unicode whitespace, are decoded to apply those rules exactly.
+ *
+ * @author CS 212 Software Development
+ * @author University of San Francisco
+ * @version Spring 2020
+ */
+public class LineComparator {
+
+  /** The size of the chunks read from each file. */
+  public static final int CHUNK = 64 * 1024;
+
+  /** The path separator byte to treat as a forward slash, or a forward slash if already used. */
+  private static final byte SEPARATOR = (byte) File.separatorChar;
+
+  /**
+   * Compares two files line-by-line.
+   *
+   * @param path1 path to first file to compare with
+   * @param path2 path to second file to compare with
+   * @return the first difference, or null if the files are equal
+   * @throws IOException if an I/O error occurs
+   */
+  public static Difference compare(Path path1, Path path2) throws IOException {
+    try (LineReader reader1 = new LineReader(path1);
+         LineReader reader2 = new LineReader(path2)) {
+      int line = 0;
+
+      boolean more1 = reader1.next();
+      boolean more2 = reader2.next();
+
+      while (more1 && more2) {
+        line++;
+
+        int column = reader1.compareTo(reader2);
+
+        if (column > 0) {
+          return new Difference(line, column);
+        }
+
+        more1 = reader1.next();
+        more2 = reader2.next();
+      }
+
+      // discard extra blank lines at the end of either file
+      while (more1 && reader1.isBlank()) {
+        more1 = reader1.next();
+      }
+
+      while (more2 && reader2.isBlank()) {
+        more2 = reader2.next();
+      }
+
+      if (more1 || more2) {
+        // extra non-empty lines found in one file
+        return new Difference(line + 1, 1);
+      }
+
+      return null;
+    }
+  }
+
+  /**
+   * Returns whether the byte is whitespace removed by {@link String#strip()}.
+   *
+   * @param value the byte to test
+   * @return true if the byte is ASCII whitespace
+   */
+  private static boolean isWhitespace(byte value) {
+    return value == ' ' || (value >= 0x09 && value <= 0x0D) || (value >= 0x1C && value <= 0x1F);
+  }
+
+  /**
+   * Returns the byte to compare, treating the path separator as a forward slash.
+   *
+   * @param value the byte to normalize
+   * @return the normalized byte
+   */
+  private static byte normalize(byte value) {
+    return value == SEPARATOR ? (byte) '/' : value;
+  }
+
+  /**
+   * The location of the first difference between two files.
+   */
+  public static class Difference {
+
+    /** The line number of the difference, starting at 1. */
+    public final int line;
+
+    /** The column (in bytes) of the difference within the first file, starting at 1. */
+    public final int column;
+
+    /**
+     * Initializes the difference.
+     *
+     * @param line the line number of the difference
+     * @param column the column of the difference
+     */
+    public Difference(int line, int column) {
+      this.line = line;
+      this.column = column;
+    }
+
+    @Override
+    public String toString() {
+      return "line " + line + ", column " + column;
+    }
+  }
+
+  /**
+   * Reads lines from a file into a reusable byte buffer. Recognizes the same line terminators as
+   * {@link java.io.BufferedReader#readLine()}.
+   */
+  private static class LineReader implements Closeable {
+
+    /** The file being read. */
+    private final FileChannel channel;
+
+    /** The bytes read so far that have not been discarded. */
+    private byte[] bytes;
+
+    /** The number of valid bytes in the array. */
+    private int limit;
+
+    /** Where to start looking for the next line. */
+    private int position;
+
+    /** The start of the current line (inclusive) after stripping whitespace. */
+    private int start;
+
+    /** The end of the current line (exclusive) after stripping whitespace. */
+    private int end;
+
+    /** The start of the current line before stripping whitespace. */
+    private int raw;
+
+    /** Whether the end of the file was reached. */
+    private boolean eof;
+
+    /**
+     * Opens the file for reading.
+     *
+     * @param path the file to read
+     * @throws IOException if an I/O error occurs
+     */
+    public LineReader(Path path) throws IOException {
+      this.channel = FileChannel.open(path, StandardOpenOption.READ);
+      this.bytes = new byte[CHUNK];
+      this.limit = 0;
+      this.position = 0;
+      this.eof = false;
+    }
+
+    /**
+     * Reads more bytes into the array, discarding the bytes before the current position and
+     * growing the array if a single line does not fit.
+     *
+     * @return false if the end of the file was reached
+     * @throws IOException if an I/O error occurs
+     */
+    private boolean fill() throws IOException {
+      if (eof) {
+        return false;
+      }
+
+      if (position > 0) {
+        System.arraycopy(bytes, position, bytes, 0, limit - position);
+        limit -= position;
+        position = 0;
+      }
+
+      if (limit == bytes.length) {
+        bytes = Arrays.copyOf(bytes, bytes.length * 2);
+      }
+
+      int read = channel.read(ByteBuffer.wrap(bytes, limit, bytes.length - limit));
+
+      if (read < 0) {
+        eof = true;
+        return false;
+      }
+
+      limit += read;
+      return true;
+    }
+
+    /**
+     * Advances to the next line.
+     *
+     * @return false if there are no more lines
+     * @throws IOException if an I/O error occurs
+     */
+    public boolean next() throws IOException {
+      int index = position;
+
+      while (true) {
+        while (index < limit && bytes[index] != '\n' && bytes[index] != '\r') {
+          index++;
+        }
+
+        // a \r needs the next byte to know if it is part of a \r\n pair
+        if (index < limit && (bytes[index] == '\n' || index + 1 < limit || eof)) {
+          break;
+        }
+
+        int offset = index - position;
+
+        if (!fill()) {
+          if (position == limit) {
+            return false;
+          }
+
+          // last line of the file, with or without a line terminator
+          index = position + offset;
+          break;
+        }
+
+        index = position + offset;
+      }
+
+      raw = position;
+      start = position;
+      end = index;
+      position = index;
+
+      // skip the line terminator, including the \n of a \r\n pair
+      if (position < limit) {
+        boolean pair = bytes[position] == '\r' && position + 1 < limit
+            && bytes[position + 1] == '\n';
+        position += pair ? 2 : 1;
+      }
+
+      while (start < end && isWhitespace(bytes[start])) {
+        start++;
+      }
+
+      while (end > start && isWhitespace(bytes[end - 1])) {
+        end--;
+      }
+
+      return true;
+    }
+
+    /**
+     * Returns whether the current line only contains whitespace.
+     *
+     * @return true if the current line is blank
+     */
+    public boolean isBlank() {
+      return start == end || (mayHaveUnicodeWhitespace() && decode().isBlank());
+    }
+
+    /**
+     * Compares the current line of both readers.
+     *
+     * @param other the other reader
+     * @return 0 if the lines are equal, otherwise the column of the first difference in this line
+     */
+    public int compareTo(LineReader other) {
+      int length1 = end - start;
+      int length2 = other.end - other.start;
+      int length = Math.min(length1, length2);
+
+      for (int i = 0; i < length; i++) {
+        if (normalize(bytes[start + i]) != normalize(other.bytes[other.start + i])) {
+          return fallback(other, start - raw + i + 1);
+        }
+      }
+
+      if (length1 != length2) {
+        return fallback(other, start - raw + length + 1);
+      }
+
+      return 0;
+    }
+
+    /**
+     * Compares the lines as strings if either might have Unicode whitespace at its ends.
+     *
+     * @param other the other reader
+     * @param column the column of the byte difference
+     * @return 0 if the decoded lines are equal, otherwise the column
+     */
+    private int fallback(LineReader other, int column) {
+      if (mayHaveUnicodeWhitespace() || other.mayHaveUnicodeWhitespace()) {
+        String separator = File.separator;
+        String line1 = decode().replace(separator, "/").strip();
+        String line2 = other.decode().replace(separator, "/").strip();
+        return line1.equals(line2) ? 0 : column;
+      }
+
+      return column;
+    }
+
+    /**
+     * Returns whether the stripped line starts or ends with a non-ASCII byte.
+     *
+     * @return true if the line might start or end with Unicode whitespace
+     */
+    private boolean mayHaveUnicodeWhitespace() {
+      return start < end && (bytes[start] < 0 || bytes[end - 1] < 0);
+    }
+
+    /**
+     * Decodes the current line.
+     *
+     * @return the current line as a string
+     */
+    private String decode() {
+      return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+}
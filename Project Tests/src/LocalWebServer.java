@@ -0,0 +1,436 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local stand-in for the web server hosting the crawler test sites. Serves the sites under
+ * {@link #REMOTE} from an on-disk snapshot, so the crawler tests and benchmarks do not depend on
+ * the network. Per-request latency, bandwidth, and the number of requests served concurrently can
+ * be configured to reproduce different network conditions.
+ *
+ * The snapshot directory mirrors the remote sites, with a subdirectory for each site such as
+ * simple, birds, guten, rfcs, recurse, redirect, and docs. One way to create it is:
+ *
+ * <pre>
+ * wget --mirror --no-parent --no-host-directories --cut-dirs=1 \
+ *     -P snapshot https://www.cs.usfca.edu/~cs212/simple/
+ * </pre>
+ *
+ * Links to the remote sites in the href, src, and action attributes of HTML pages and in redirect
+ * targets are rewritten to point at this server, so the crawler never leaves it by following an
+ * absolute link. The visible text of the pages is left unchanged, so the same words are indexed.
+ *
+ * Redirects are listed in an optional {@link #REDIRECTS} file in the snapshot directory, one per
+ * line with the source path, target path, and optional status code separated by whitespace. For
+ * example, "/redirect/one /redirect/hello.html 301".
+ *
+ * The crawler tests use this server instead of the remote sites when the "crawl.snapshot" property
+ * is set to the snapshot directory. The "crawl.latency" (milliseconds), "crawl.bandwidth" (bytes
+ * per second), and "crawl.concurrency" (requests) properties configure the network conditions.
+ *
+ * @author CS 212 Software Development
+ * @author University of San Francisco
+ * @version Spring 2020
+ */
+public class LocalWebServer {
+
+  /** The base of the remote sites replaced by this server. */
+  public static final String REMOTE = "https://www.cs.usfca.edu/~cs212/";
+
+  /** The remote base with plain HTTP, which is also replaced by this server. */
+  public static final String REMOTE_HTTP = REMOTE.replace("https://", "http://");
+
+  /** The path under which the sites are served locally, matching the remote path. */
+  public static final String CONTEXT = "/~cs212/";
+
+  /** The name of the file listing redirects in the snapshot directory. */
+  public static final String REDIRECTS = "redirects.txt";
+
+  /** Matches an href, src, or action attribute up to the start of a link to the remote sites. */
+  private static final Pattern ATTRIBUTE_REGEX =
+      Pattern.compile("(?i)(\\b(?:href|src|action)\\s*=\\s*[\"']?\\s*)https?://"
+          + Pattern.quote(REMOTE.substring("https://".length())));
+
+  /** The shared server used by the crawler tests, or null if not started yet. */
+  private static LocalWebServer shared = null;
+
+  /** The expected files already copied with local links, so they are not rewritten while in use. */
+  private static final Set<Path> localized = new HashSet<>();
+
+  /** The directory with the snapshot of the remote sites. */
+  private final Path snapshot;
+
+  /** The delay before responding to each request in milliseconds. */
+  private final long latency;
+
+  /** The maximum bytes per second sent for each response, or 0 for unlimited. */
+  private final long bandwidth;
+
+  /** Limits the number of requests handled at once. */
+  private final Semaphore permits;
+
+  /** Maps the redirected paths to their target paths and status codes. */
+  private final Map<String, String[]> redirects;
+
+  /** The underlying server. */
+  private final HttpServer server;
+
+  /** The threads handling requests. */
+  private final ExecutorService executor;
+
+  /**
+   * Starts a server on an available local port.
+   *
+   * @param snapshot the directory with the snapshot of the remote sites
+   * @param latency the delay before responding to each request in milliseconds
+   * @param bandwidth the maximum bytes per second sent for each response, or 0 for unlimited
+   * @param concurrency the maximum number of requests handled at once
+   * @throws IOException if unable to start the server
+   */
+  public LocalWebServer(Path snapshot, long latency, long bandwidth, int concurrency)
+      throws IOException {
+    this.snapshot = snapshot.toAbsolutePath().normalize();
+    this.latency = latency;
+    this.bandwidth = bandwidth;
+    this.permits = new Semaphore(concurrency, true);
+    this.redirects = new HashMap<>();
+
+    Path file = snapshot.resolve(REDIRECTS);
+
+    if (Files.isReadable(file)) {
+      for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+        String[] parts = line.strip().split("\\s+");
+
+        if (parts.length >= 2 && !parts[0].startsWith("#")) {
+          String status = parts.length > 2 ? parts[2] : "301";
+          redirects.put(parts[0], new String[] {parts[1], status});
+        }
+      }
+    }
+
+    this.executor = Executors.newCachedThreadPool();
+    this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    this.server.createContext(CONTEXT, this::handle);
+    this.server.setExecutor(executor);
+    this.server.start();
+  }
+
+  /**
+   * Returns the local base that replaces {@link #REMOTE}.
+   *
+   * @return the local base address
+   */
+  public String base() {
+    return "http://localhost:" + server.getAddress().getPort() + CONTEXT;
+  }
+
+  /**
+   * Replaces every link to the remote sites with a link to this server. Used for redirect targets
+   * and expected output files, where remote links only appear as locations.
+   *
+   * @param text the text with remote links
+   * @return the text with local links
+   */
+  public String localize(String text) {
+    return text.replace(REMOTE, base()).replace(REMOTE_HTTP, base());
+  }
+
+  /**
+   * Replaces every link to the remote sites in the href, src, and action attributes of an HTML page
+   * with a link to this server, leaving the rest of the page unchanged.
+   *
+   * @param html the HTML page with remote links
+   * @return the HTML page with local links
+   */
+  public String localizeLinks(String html) {
+    return ATTRIBUTE_REGEX.matcher(html).replaceAll(
+        match -> Matcher.quoteReplacement(match.group(1) + base()));
+  }
+
+  /**
+   * Stops the server.
+   */
+  public void stop() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  /**
+   * Handles a single request by serving a redirect, a file from the snapshot, or a 404 error.
+   *
+   * @param exchange the request and response
+   * @throws IOException if an I/O error occurs
+   */
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      exchange.close();
+      return;
+    }
+
+    try {
+      if (latency > 0) {
+        Thread.sleep(latency);
+      }
+
+      String path = exchange.getRequestURI().getPath().substring(CONTEXT.length() - 1);
+      String[] redirect = redirects.get(path);
+
+      if (redirect != null) {
+        String target = redirect[0];
+
+        if (target.startsWith("/")) {
+          target = base() + target.substring(1);
+        } else {
+          target = localize(target);
+        }
+
+        exchange.getResponseHeaders().set("Location", target);
+        exchange.sendResponseHeaders(Integer.parseInt(redirect[1]), -1);
+        return;
+      }
+
+      Path file = snapshot.resolve(path.substring(1)).normalize();
+
+      if (Files.isDirectory(file)) {
+        file = file.resolve("index.html");
+      }
+
+      if (!file.startsWith(snapshot) || !Files.isRegularFile(file)) {
+        byte[] body = "404 Not Found".getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain");
+        exchange.sendResponseHeaders(404, body.length);
+        send(exchange.getResponseBody(), body);
+        return;
+      }
+
+      byte[] body = Files.readAllBytes(file);
+      String type = contentType(file, body);
+      exchange.getResponseHeaders().set("Content-Type", type);
+
+      if (type.startsWith("text/html")) {
+        // the links are plain ASCII, so this keeps every other byte whatever the page encoding
+        String html = new String(body, StandardCharsets.ISO_8859_1);
+        body = localizeLinks(html).getBytes(StandardCharsets.ISO_8859_1);
+      }
+
+      if (exchange.getRequestMethod().equalsIgnoreCase("HEAD")) {
+        exchange.sendResponseHeaders(200, -1);
+      } else {
+        exchange.sendResponseHeaders(200, body.length);
+        send(exchange.getResponseBody(), body);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      exchange.close();
+      permits.release();
+    }
+  }
+
+  /**
+   * Sends the response body, throttled to the configured bandwidth.
+   *
+   * @param output the response body stream
+   * @param body the bytes to send
+   * @throws IOException if an I/O error occurs
+   * @throws InterruptedException if interrupted while throttling
+   */
+  private void send(OutputStream output, byte[] body) throws IOException, InterruptedException {
+    if (bandwidth <= 0) {
+      output.write(body);
+      return;
+    }
+
+    // send in chunks of roughly 1/20th of a second each
+    int chunk = (int) Math.max(1, Math.min(body.length, bandwidth / 20));
+    long start = System.nanoTime();
+
+    for (int offset = 0; offset < body.length; offset += chunk) {
+      int length = Math.min(chunk, body.length - offset);
+      output.write(body, offset, length);
+      output.flush();
+
+      long expected = TimeUnit.SECONDS.toNanos(offset + length) / bandwidth;
+      long ahead = expected - (System.nanoTime() - start);
+
+      if (ahead > 0) {
+        TimeUnit.NANOSECONDS.sleep(ahead);
+      }
+    }
+  }
+
+  /**
+   * Determines the content type of a file. Files without a recognized extension are treated as
+   * HTML if they look like HTML, since the test sites include pages without extensions.
+   *
+   * @param file the file being served
+   * @param body the contents of the file
+   * @return the content type
+   */
+  private static String contentType(Path file, byte[] body) {
+    String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+
+    if (name.endsWith(".html") || name.endsWith(".htm")) {
+      return "text/html; charset=utf-8";
+    }
+
+    if (name.endsWith(".txt") || name.endsWith(".text")) {
+      return "text/plain; charset=utf-8";
+    }
+
+    if (name.endsWith(".css")) {
+      return "text/css";
+    }
+
+    if (name.endsWith(".js")) {
+      return "application/javascript";
+    }
+
+    if (name.endsWith(".png") || name.endsWith(".gif") || name.endsWith(".jpg")) {
+      return "image/" + name.substring(name.lastIndexOf('.') + 1).replace("jpg", "jpeg");
+    }
+
+    String start = new String(body, 0, Math.min(body.length, 512), StandardCharsets.UTF_8)
+        .strip().toLowerCase(Locale.ROOT);
+
+    if (start.startsWith("<!doctype html") || start.startsWith("<html")) {
+      return "text/html; charset=utf-8";
+    }
+
+    return "application/octet-stream";
+  }
+
+  /**
+   * Returns whether the crawler tests should use a local server, which is the case when the
+   * "crawl.snapshot" property is set.
+   *
+   * @return true if the crawler tests should use a local server
+   */
+  public static boolean isEnabled() {
+    return System.getProperty("crawl.snapshot") != null;
+  }
+
+  /**
+   * Returns the shared server used by the crawler tests, starting it with the configured snapshot
+   * and network conditions if necessary. The server is stopped when the JVM exits.
+   *
+   * @return the shared server
+   * @throws UncheckedIOException if unable to start the server
+   */
+  public static synchronized LocalWebServer shared() {
+    if (shared == null) {
+      Path snapshot = Path.of(System.getProperty("crawl.snapshot"));
+      long latency = Long.getLong("crawl.latency", 0);
+      long bandwidth = Long.getLong("crawl.bandwidth", 0);
+      int concurrency = Integer.getInteger("crawl.concurrency", 64);
+
+      try {
+        LocalWebServer server = new LocalWebServer(snapshot, latency, bandwidth, concurrency);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        shared = server;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    return shared;
+  }
+
+  /**
+   * Returns the link to crawl in the tests. If the local server is enabled, the remote base of the
+   * link is replaced by the local base. Otherwise, the link is returned unchanged.
+   *
+   * @param link the remote link
+   * @return the link to crawl
+   * @throws UncheckedIOException if unable to start the server
+   */
+  public static String link(String link) {
+    if (!isEnabled() || !link.startsWith(REMOTE)) {
+      return link;
+    }
+
+    return shared().base() + link.substring(REMOTE.length());
+  }
+
+  /**
+   * Returns the expected output file to compare against in the tests. If the local server is
+   * enabled, a copy of the expected file with every remote link replaced by a local link is
+   * created once in the actual output directory. Otherwise, the file is returned unchanged.
+   *
+   * @param expected the expected output file with remote links
+   * @return the expected output file to compare against
+   * @throws UncheckedIOException if unable to start the server or create the copy
+   */
+  public static synchronized Path expected(Path expected) {
+    if (!isEnabled() || !Files.isReadable(expected)) {
+      return expected;
+    }
+
+    Path local = TestUtilities.ACTUAL_PATH.resolve("expected-local")
+        .resolve(expected.getFileName()).normalize();
+
+    if (localized.contains(local)) {
+      return local;
+    }
+
+    try {
+      String contents = Files.readString(expected, StandardCharsets.UTF_8);
+      Files.createDirectories(local.getParent());
+      Files.writeString(local, shared().localize(contents), StandardCharsets.UTF_8);
+      localized.add(local);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    return local;
+  }
+
+  /**
+   * Serves a snapshot from the command line until standard input is closed. The arguments are the
+   * snapshot directory, followed by the optional latency in milliseconds, bandwidth in bytes per
+   * second, and maximum concurrent requests.
+   *
+   * @param args the command-line arguments
+   * @throws IOException if unable to start the server
+   */
+  public static void main(String[] args) throws IOException {
+    List<String> values = List.of(args);
+    Path snapshot = Path.of(values.isEmpty() ? "snapshot" : values.get(0));
+    long latency = values.size() > 1 ? Long.parseLong(values.get(1)) : 0;
+    long bandwidth = values.size() > 2 ? Long.parseLong(values.get(2)) : 0;
+    int concurrency = values.size() > 3 ? Integer.parseInt(values.get(3)) : 64;
+
+    LocalWebServer server = new LocalWebServer(snapshot, latency, bandwidth, concurrency);
+    System.out.printf("Serving %s at %s%n", snapshot, server.base());
+
+    try (InputStream input = System.in) {
+      while (input.read() >= 0) {
+        // wait until the input is closed
+      }
+    } finally {
+      server.stop();
+    }
+  }
+}
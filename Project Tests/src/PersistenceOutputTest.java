@@ -0,0 +1,254 @@
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.MethodOrderer.Alphanumeric;
+import org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.parallel.ResourceAccessMode;
+import org.junit.jupiter.api.parallel.ResourceLock;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * JUnit tests for saving the inverted index to a binary file with the {@value #SAVE} flag and
+ * loading it again with the {@value #LOAD} flag instead of the -path flag. The output after loading
+ * must be exactly the same as the output after building the index from the original input, so the
+ * same expected files are used.
+ *
+ * @author CS 212 Software Development
+ * @author University of San Francisco
+ * @version Spring 2020
+ */
+@TestMethodOrder(Alphanumeric.class)
+public class PersistenceOutputTest {
+
+  /** The flag used to save the index to a binary file. */
+  public static final String SAVE = "-save";
+
+  /** The flag used to load the index from a binary file. */
+  public static final String LOAD = "-load";
+
+  /**
+   * Builds the index for the input and saves it to a binary file named after the output file.
+   * If {@link TestUtilities#PARALLEL} is enabled, the index is saved to its own subdirectory so
+   * concurrent saves never overwrite each other. Designed to be used inside a JUnit test.
+   *
+   * @param input the input path to use
+   * @param filename the output file name the saved index is named after
+   * @return the path to the saved index
+   * @throws UncheckedIOException if unable to create the directory for the saved index
+   */
+  public static Path save(Path input, String filename) {
+    Path original = TestUtilities.ACTUAL_PATH.resolve("saved")
+        .resolve(filename.replace(".json", ".idx")).normalize();
+    Path saved = TestUtilities.PARALLEL ? TestUtilities.isolate(original) : original;
+
+    try {
+      Files.createDirectories(saved.getParent());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    String[] args = {"-path", input.normalize().toString(), SAVE, saved.toString()};
+
+    TestUtilities.checkExceptions(args);
+    assertTrue(Files.isReadable(saved), () -> "Unable to read saved index: " + saved);
+    return saved;
+  }
+
+  /**
+   * Saves the index for the input, loads it again, and tests the index output. Designed to be used
+   * inside a JUnit test.
+   *
+   * @param subdir the output subdirectory to use
+   * @param input the input path to use
+   */
+  public static void testIndex(String subdir, Path input) {
+    String filename = TestUtilities.outputFileName("index", input);
+
+    Path actual = TestUtilities.ACTUAL_PATH.resolve(filename).normalize();
+    Path expected = TestUtilities.EXPECTED_PATH.resolve(subdir).resolve(filename).normalize();
+    Path saved = save(input, filename);
+
+    String[] args = {LOAD, saved.toString(), "-index", actual.toString()};
+    TestUtilities.checkOutput(args, actual, expected);
+  }
+
+  /**
+   * Saves the index for the input, loads it again, and tests the search output. Designed to be used
+   * inside a JUnit test.
+   *
+   * @param subdir the output subdirectory to use
+   * @param input the input path to use
+   * @param query the query file to use for search
+   * @param exact whether to perform exact or partial search
+   */
+  public static void testSearch(String subdir, Path input, String query, boolean exact) {
+    String type = exact ? "exact" : "partial";
+    String filename = TestUtilities.outputFileName("search-" + type, input);
+
+    Path actual = TestUtilities.ACTUAL_PATH.resolve(filename).normalize();
+    Path expected = TestUtilities.EXPECTED_PATH.resolve(subdir).resolve(filename).normalize();
+    Path saved = save(input, filename);
+
+    String[] args = {LOAD, saved.toString(), "-query",
+        TestUtilities.QUERY_INPUT.resolve(query).toString(), "-results", actual.toString(),
+        exact ? "-exact" : ""};
+
+    TestUtilities.checkOutput(args, actual, expected);
+  }
+
+  /**
+   * Tests the index output after loading a saved index.
+   */
+  @Nested
+  @TestMethodOrder(OrderAnnotation.class)
+  @ResourceLock(value = TestUtilities.RUNTIME_LOCK, mode = ResourceAccessMode.READ)
+  public class A_LoadIndexTest {
+
+    /**
+     * Tests the index output for files in the simple subdirectory.
+     *
+     * @param filename filename of a text file in the simple subdirectory
+     */
+    @Order(1)
+    @ParameterizedTest
+    @ValueSource(strings = {"hello.txt", "position.teXt", "words.tExT"})
+    public void testSimpleFiles(String filename) {
+      Path input = TestUtilities.TEXT_INPUT.resolve("simple").resolve(filename);
+      testIndex("index-simple", input);
+    }
+
+    /**
+     * Tests the index output for the simple subdirectory.
+     */
+    @Order(2)
+    @Test
+    public void testSimpleDirectory() {
+      testIndex("index-simple", TestUtilities.TEXT_INPUT.resolve("simple"));
+    }
+
+    /**
+     * Tests the index output for the rfcs subdirectory.
+     */
+    @Order(3)
+    @Test
+    public void testRfcDirectory() {
+      testIndex("index-rfcs", TestUtilities.TEXT_INPUT.resolve("rfcs"));
+    }
+
+    /**
+     * Tests the index output for 1400-0.txt in the guten subdirectory.
+     */
+    @Order(4)
+    @Test
+    public void testGuten1400() {
+      testIndex("index-guten", TestUtilities.TEXT_INPUT.resolve("guten").resolve("1400-0.txt"));
+    }
+
+    /**
+     * Tests the word counts after loading the index for the entire input directory.
+     */
+    @Order(5)
+    @Test
+    public void testCounts() {
+      String filename = "counts.json";
+
+      Path actual = TestUtilities.ACTUAL_PATH.resolve(filename);
+      Path expected = TestUtilities.EXPECTED_PATH.resolve(filename);
+      Path saved = save(TestUtilities.TEXT_INPUT, filename);
+
+      String[] args = {LOAD, saved.toString(), "-counts", actual.normalize().toString()};
+      TestUtilities.checkOutput(args, actual, expected);
+    }
+  }
+
+  /**
+   * Tests the search output after loading a saved index.
+   */
+  @Nested
+  @TestMethodOrder(OrderAnnotation.class)
+  @ResourceLock(value = TestUtilities.RUNTIME_LOCK, mode = ResourceAccessMode.READ)
+  public class B_LoadSearchTest {
+
+    /**
+     * Tests the exact search output for the simple subdirectory.
+     */
+    @Order(1)
+    @Test
+    public void testSimpleExact() {
+      testSearch("search-exact", TestUtilities.TEXT_INPUT.resolve("simple"), "simple.txt", true);
+    }
+
+    /**
+     * Tests the partial search output for the simple subdirectory.
+     */
+    @Order(2)
+    @Test
+    public void testSimplePartial() {
+      testSearch("search-partial", TestUtilities.TEXT_INPUT.resolve("simple"), "simple.txt",
+          false);
+    }
+
+    /**
+     * Tests the exact search output for the entire input directory.
+     */
+    @Order(3)
+    @Test
+    public void testTextExact() {
+      testSearch("search-exact", TestUtilities.TEXT_INPUT, "complex.txt", true);
+    }
+
+    /**
+     * Tests the partial search output for the entire input directory.
+     */
+    @Order(4)
+    @Test
+    public void testTextPartial() {
+      testSearch("search-partial", TestUtilities.TEXT_INPUT, "complex.txt", false);
+    }
+  }
+
+  /**
+   * Tests that searching a saved index is faster than building the index again.
+   */
+  @Nested
+  @TestMethodOrder(OrderAnnotation.class)
+  @ResourceLock(TestUtilities.RUNTIME_LOCK)
+  public class C_LoadRuntimeTest {
+
+    /**
+     * Tests that partial search of the entire input directory is faster after loading the saved
+     * index than after building it from the text files.
+     */
+    @Order(1)
+    @Test
+    public void testLoadSearch() {
+      String query = TestUtilities.QUERY_INPUT.resolve("complex.txt").toString();
+      Path saved = save(TestUtilities.TEXT_INPUT, "runtime-text.json");
+
+      String[] args1 = {"-path", TestUtilities.TEXT_INPUT.toString(), "-query", query};
+      String[] args2 = {LOAD, saved.toString(), "-query", query};
+
+      System.out.println();
+      System.out.printf("### Testing Search Build vs Load...%n");
+
+      // make sure code runs without exceptions before testing
+      TestUtilities.testExceptionTimeout(args1, ThreadRuntimeTest.TIMEOUT);
+      TestUtilities.testExceptionTimeout(args2, ThreadRuntimeTest.TIMEOUT);
+
+      // then test the timing
+      assertTimeoutPreemptively(ThreadRuntimeTest.SPEEDUP_TIMEOUT, () -> {
+        SpeedupComparison result = ThreadRuntimeTest.compare("Build", args1, "Load", args2);
+        assertTrue(result.passed(),
+            () -> String.format(ThreadRuntimeTest.SPEEDUP_FORMAT, "building", result));
+      });
+    }
+  }
+}
@@ -5,6 +5,8 @@ import org.junit.jupiter.api.MethodOrderer.Alphanumeric;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.parallel.ResourceAccessMode;
+import org.junit.jupiter.api.parallel.ResourceLock;
 
 /**
  * A test suite for project 2. During development, run individual tests instead of this test suite.
@@ -39,6 +41,7 @@ public class Project2Test {
    * @see IndexOutputTest
    */
   @Nested
+  @ResourceLock(value = TestUtilities.RUNTIME_LOCK, mode = ResourceAccessMode.READ)
   public class A_IndexOutput {
 
     /**
@@ -7,6 +7,8 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.parallel.ResourceAccessMode;
+import org.junit.jupiter.api.parallel.ResourceLock;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
@@ -48,6 +50,7 @@ public class Project3Test {
    */
   @Nested
   @TestMethodOrder(OrderAnnotation.class)
+  @ResourceLock(value = TestUtilities.RUNTIME_LOCK, mode = ResourceAccessMode.READ)
   public class A_SingleThreadOutput {
 
     /**
@@ -133,6 +136,7 @@ public class Project3Test {
    */
   @Nested
   @TestMethodOrder(OrderAnnotation.class)
+  @ResourceLock(value = TestUtilities.RUNTIME_LOCK, mode = ResourceAccessMode.READ)
   public class D_ThreadOutput {
     /**
      * Tests the word counts functionality of the inverted index on the entire input directory.
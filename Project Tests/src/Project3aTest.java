@@ -7,6 +7,8 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.parallel.ResourceAccessMode;
+import org.junit.jupiter.api.parallel.ResourceLock;
 
 /**
  * A test suite for project 3 part a (functionality). During development, run individual tests
@@ -46,6 +48,7 @@ public class Project3aTest {
    */
   @Nested
   @TestMethodOrder(OrderAnnotation.class)
+  @ResourceLock(value = TestUtilities.RUNTIME_LOCK, mode = ResourceAccessMode.READ)
   public class A_SingleThread {
 
     /**
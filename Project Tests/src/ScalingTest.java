@@ -0,0 +1,381 @@
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.parallel.ResourceLock;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Measures how well building the index scales as the number of worker threads increases. For each
+ * input, the build is benchmarked with every thread count in {@link #THREADS}, and the speedup and
+ * parallel efficiency curves are written as CSV and JSON files to the actual output directory. The
+ * serial fraction of the code is estimated by fitting Amdahl's law to the speedup curve.
+ *
+ * By default, these never fail because of timing. The output needs to be investigated to find
+ * where the build stops scaling. Set the "scaling.efficiency" property to require a minimum
+ * parallel efficiency for every thread count up to the number of available processors, such as
+ * 0.7 when checking that the build scales nearly linearly. The output is checked once before
+ * benchmarking, with the largest thread count: the index against the expected index if one exists
+ * for the input, and otherwise the much smaller word counts against the word counts with the
+ * first thread count, so that large corpora are not written and compared as a full index.
+ *
+ * WARNING: These benchmarks take considerable time and should not be run unless absolutely
+ * necessary.
+ *
+ * @author CS 212 Software Development
+ * @author University of San Francisco
+ * @version Spring 2020
+ */
+@TestMethodOrder(OrderAnnotation.class)
+@ResourceLock(TestUtilities.RUNTIME_LOCK)
+public class ScalingTest {
+
+  /** The thread counts to benchmark, overridden by the "scaling.threads" property. */
+  public static final int[] THREADS = Arrays.stream(
+      System.getProperty("scaling.threads", "1,2,4,8,16").split(","))
+      .mapToInt(Integer::parseInt).toArray();
+
+  /**
+   * An additional input directory to benchmark, such as a synthetic corpus, set by the
+   * "scaling.corpus" property.
+   */
+  public static final String CORPUS = System.getProperty("scaling.corpus");
+
+  /**
+   * The size of a synthetic corpus to generate and benchmark, such as "500M", set by the
+   * "scaling.synthetic" property.
+   *
+   * @see CorpusGenerator
+   */
+  public static final String SYNTHETIC = System.getProperty("scaling.synthetic");
+
+  /**
+   * The minimum parallel efficiency required for every thread count up to the number of available
+   * processors, set by the "scaling.efficiency" property. Not checked if not set.
+   */
+  public static final double EFFICIENCY =
+      Double.parseDouble(System.getProperty("scaling.efficiency", "NaN"));
+
+  /**
+   * The timeout for each run when checking the output before benchmarking, in minutes, overridden
+   * by the "scaling.timeout" property.
+   */
+  public static final Duration TIMEOUT = Duration.ofMinutes(Long.getLong("scaling.timeout", 5));
+
+  /**
+   * Makes sure the expected environment is setup before running any benchmarks.
+   */
+  @BeforeAll
+  public static void testEnvironment() {
+    assertTrue(TestUtilities.isEnvironmentSetup());
+  }
+
+  /**
+   * Provides the inputs to benchmark.
+   *
+   * @return the input directories to benchmark
+   * @throws IOException if unable to generate the synthetic corpus
+   */
+  public static Stream<Path> inputs() throws IOException {
+    List<Path> inputs = new ArrayList<>();
+    inputs.add(TestUtilities.TEXT_INPUT.resolve("simple"));
+    inputs.add(TestUtilities.TEXT_INPUT.resolve("rfcs"));
+    inputs.add(TestUtilities.TEXT_INPUT.resolve("guten"));
+
+    if (CORPUS != null) {
+      inputs.add(Path.of(CORPUS));
+    }
+
+    if (SYNTHETIC != null) {
+      inputs.add(synthetic(SYNTHETIC));
+    }
+
+    return inputs.stream();
+  }
+
+  /**
+   * Generates a synthetic corpus of the given size, unless one was already generated by a previous
+   * run.
+   *
+   * @param size the size of the corpus, such as "500M"
+   * @return the synthetic corpus directory
+   * @throws IOException if unable to generate the corpus
+   */
+  public static Path synthetic(String size) throws IOException {
+    Path output = TestUtilities.ACTUAL_PATH.resolve("synthetic-" + size.toLowerCase());
+    Path done = output.resolve(".generated");
+
+    if (!Files.exists(done)) {
+      new CorpusGenerator(212).setSize(CorpusGenerator.parseSize(size)).generate(output);
+      Files.createFile(done);
+    }
+
+    return output;
+  }
+
+  /**
+   * Benchmarks building the index for the input with every thread count.
+   *
+   * @param input the input directory to benchmark
+   * @throws IOException if unable to write the curve files
+   */
+  @Order(1)
+  @ParameterizedTest(name = "{0}")
+  @MethodSource("inputs")
+  public void testBuildScaling(Path input) throws IOException {
+    assertTrue(Files.isDirectory(input), () -> "Unable to find input: " + input);
+
+    String name = input.getFileName().toString();
+    List<Benchmarker.Result> results = new ArrayList<>();
+
+    checkOutput(input);
+
+    for (int threads : THREADS) {
+      String[] args = {
+          "-path", input.toString(),
+          "-threads", Integer.toString(threads)};
+
+      results.add(Benchmarker.benchmark(name + " (" + threads + ")", args));
+    }
+
+    Curve curve = new Curve(name, THREADS, results);
+    curve.print();
+    curve.write(TestUtilities.ACTUAL_PATH);
+
+    if (!Double.isNaN(EFFICIENCY)) {
+      int processors = Runtime.getRuntime().availableProcessors();
+
+      for (int i = 0; i < THREADS.length; i++) {
+        int index = i;
+        assertTrue(THREADS[i] > processors || curve.efficiencies[i] >= EFFICIENCY,
+            () -> String.format("Parallel efficiency with %d threads was %.4f, below %.4f.",
+                THREADS[index], curve.efficiencies[index], EFFICIENCY));
+      }
+    }
+  }
+
+  /**
+   * Checks the output for the input once with the largest thread count. If there is an expected
+   * index for the input, the index is compared to it. Otherwise, the word counts are compared to
+   * the word counts with the first thread count.
+   *
+   * @param input the input directory to check
+   */
+  public static void checkOutput(Path input) {
+    String name = input.getFileName().toString();
+    String threads = Integer.toString(Arrays.stream(THREADS).max().getAsInt());
+
+    String filename = TestUtilities.outputFileName("index", input);
+    Path expected = TestUtilities.EXPECTED_PATH.resolve("index-" + name).resolve(filename);
+
+    if (Files.isReadable(expected)) {
+      Path actual = TestUtilities.ACTUAL_PATH.resolve("scaling-" + filename);
+      String[] args = {"-path", input.toString(), "-index", actual.toString(),
+          "-threads", threads};
+
+      TestUtilities.testOutputTimeout(args, actual, expected, TIMEOUT);
+      return;
+    }
+
+    String counts = TestUtilities.outputFileName("counts", input);
+    Path first = TestUtilities.ACTUAL_PATH.resolve("scaling-" + THREADS[0] + "-" + counts);
+    Path actual = TestUtilities.ACTUAL_PATH.resolve("scaling-" + threads + "-" + counts);
+
+    String[] args1 = {"-path", input.toString(), "-counts", first.toString(),
+        "-threads", Integer.toString(THREADS[0])};
+    String[] args2 = {"-path", input.toString(), "-counts", actual.toString(),
+        "-threads", threads};
+
+    TestUtilities.testExceptionTimeout(args1, TIMEOUT);
+    assertTrue(Files.isReadable(first), () -> "Unable to read counts output: " + first);
+    TestUtilities.testOutputTimeout(args2, actual, first, TIMEOUT);
+  }
+
+  /**
+   * Fits Amdahl's law to the speedup measurements, where the speedup with p threads is
+   * 1 / (f + (1 - f) / p) for the serial fraction f. Rearranging gives 1 / S - 1 / p = f (1 - 1 / p),
+   * which is linear in f and solved with least squares.
+   *
+   * @param threads the thread counts
+   * @param speedups the speedup with each thread count
+   * @return the estimated serial fraction between 0 and 1
+   */
+  public static double serialFraction(int[] threads, double[] speedups) {
+    double numerator = 0;
+    double denominator = 0;
+
+    for (int i = 0; i < threads.length; i++) {
+      double x = 1 - 1.0 / threads[i];
+      double y = 1 / speedups[i] - 1.0 / threads[i];
+      numerator += x * y;
+      denominator += x * x;
+    }
+
+    if (denominator == 0) {
+      return Double.NaN;
+    }
+
+    return Math.min(1, Math.max(0, numerator / denominator));
+  }
+
+  /**
+   * The speedup and parallel efficiency of one input across thread counts. The speedup is relative
+   * to the median runtime with the first thread count, which should be 1.
+   */
+  public static class Curve {
+
+    /** The name of the input. */
+    public final String name;
+
+    /** The thread counts benchmarked. */
+    public final int[] threads;
+
+    /** The median runtime with each thread count in nanoseconds. */
+    public final double[] medians;
+
+    /** The error bar around the mean runtime with each thread count in nanoseconds. */
+    public final double[] errors;
+
+    /** The speedup with each thread count. */
+    public final double[] speedups;
+
+    /** The parallel efficiency with each thread count. */
+    public final double[] efficiencies;
+
+    /** The serial fraction estimated from Amdahl's law. */
+    public final double serial;
+
+    /**
+     * Calculates the curve from the benchmark results.
+     *
+     * @param name the name of the input
+     * @param threads the thread counts benchmarked
+     * @param results the benchmark result for each thread count
+     */
+    public Curve(String name, int[] threads, List<Benchmarker.Result> results) {
+      this.name = name;
+      this.threads = threads;
+      this.medians = new double[threads.length];
+      this.errors = new double[threads.length];
+      this.speedups = new double[threads.length];
+      this.efficiencies = new double[threads.length];
+
+      for (int i = 0; i < threads.length; i++) {
+        medians[i] = results.get(i).percentile(50);
+        errors[i] = results.get(i).error();
+        speedups[i] = medians[0] * threads[0] / medians[i];
+        efficiencies[i] = speedups[i] / threads[i];
+      }
+
+      this.serial = serialFraction(threads, speedups);
+    }
+
+    /**
+     * Returns the maximum speedup predicted by Amdahl's law with unlimited threads.
+     *
+     * @return the maximum speedup
+     */
+    public double maxSpeedup() {
+      return 1 / serial;
+    }
+
+    /**
+     * Returns the curve in CSV format with a header row.
+     *
+     * @return the curve as CSV
+     */
+    public String toCsv() {
+      StringBuilder csv = new StringBuilder();
+      csv.append(String.format("input,threads,median_ms,error_ms,speedup,efficiency%n"));
+
+      for (int i = 0; i < threads.length; i++) {
+        csv.append(String.format(Locale.ROOT, "%s,%d,%.3f,%.3f,%.4f,%.4f%n", name, threads[i],
+            medians[i] / TimeUnit.MILLISECONDS.toNanos(1),
+            errors[i] / TimeUnit.MILLISECONDS.toNanos(1), speedups[i], efficiencies[i]));
+      }
+
+      return csv.toString();
+    }
+
+    /**
+     * Returns the curve in JSON format.
+     *
+     * @return the curve as JSON
+     */
+    public String toJson() {
+      StringBuilder json = new StringBuilder();
+      json.append(String.format("{%n  \"input\": \"%s\",%n", name));
+      json.append(String.format("  \"serial_fraction\": %s,%n", number("%.4f", serial)));
+      json.append(String.format("  \"max_speedup\": %s,%n", number("%.4f", maxSpeedup())));
+      json.append(String.format("  \"points\": ["));
+
+      for (int i = 0; i < threads.length; i++) {
+        json.append(String.format("%s%n    {\"threads\": %d, \"median_ms\": %s, \"error_ms\": "
+            + "%s, \"speedup\": %s, \"efficiency\": %s}", i == 0 ? "" : ",", threads[i],
+            number("%.3f", medians[i] / TimeUnit.MILLISECONDS.toNanos(1)),
+            number("%.3f", errors[i] / TimeUnit.MILLISECONDS.toNanos(1)),
+            number("%.4f", speedups[i]), number("%.4f", efficiencies[i])));
+      }
+
+      json.append(String.format("%n  ]%n}%n"));
+      return json.toString();
+    }
+
+    /**
+     * Formats a number for JSON output independent of the default locale, using null for values
+     * JSON does not support.
+     *
+     * @param format the format to use for finite values
+     * @param value the value to format
+     * @return the formatted value
+     */
+    private static String number(String format, double value) {
+      return Double.isFinite(value) ? String.format(Locale.ROOT, format, value) : "null";
+    }
+
+    /**
+     * Writes the curve as scaling-name.csv and scaling-name.json files.
+     *
+     * @param directory the directory to write the files
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(Path directory) throws IOException {
+      Files.createDirectories(directory);
+      Files.writeString(directory.resolve("scaling-" + name + ".csv"), toCsv(),
+          StandardCharsets.UTF_8);
+      Files.writeString(directory.resolve("scaling-" + name + ".json"), toJson(),
+          StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Prints the curve as a table.
+     */
+    public void print() {
+      System.out.printf("%n```%n%s%n", name);
+      System.out.printf("%-8s %12s %12s %10s %10s%n", "Threads", "Median (ms)", "Error (ms)",
+          "Speedup", "Efficiency");
+
+      for (int i = 0; i < threads.length; i++) {
+        System.out.printf("%-8d %12.3f %12.3f %10.4f %10.4f%n", threads[i],
+            medians[i] / TimeUnit.MILLISECONDS.toNanos(1),
+            errors[i] / TimeUnit.MILLISECONDS.toNanos(1), speedups[i], efficiencies[i]);
+      }
+
+      System.out.printf("%nSerial fraction: %.4f (maximum speedup x%.2f)%n```%n", serial,
+          maxSpeedup());
+    }
+  }
+}
@@ -0,0 +1,335 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Decides whether one set of {@link Driver} arguments is faster than another using a bootstrap
+ * confidence interval of the speedup (the ratio of the median runtimes) instead of a difference of
+ * averages. The runs of both argument sets are interleaved and repeated until the interval is tight
+ * enough, the interval falls entirely on one side of the minimum speedup, or the maximum number of
+ * runs is reached. The comparison only passes if the lower bound of the interval meets the minimum
+ * speedup and a one-sided Mann-Whitney U test agrees at the same confidence level.
+ *
+ * Every comparison is appended as a single line of JSON to the {@link #REPORT} file so that
+ * continuous integration can track parallel efficiency over time. Numbers are always written with
+ * a period as the decimal separator, and values JSON does not support are written as null.
+ *
+ * @author CS 212 Software Development
+ * @author University of San Francisco
+ * @version Spring 2020
+ */
+public class SpeedupComparison {
+
+  /** The default minimum speedup required, overridden by the "speedup.minimum" property. */
+  public static final double MINIMUM =
+      Double.parseDouble(System.getProperty("speedup.minimum", "1.0"));
+
+  /** The confidence level of the interval, overridden by the "speedup.confidence" property. */
+  public static final double CONFIDENCE =
+      Double.parseDouble(System.getProperty("speedup.confidence", "0.95"));
+
+  /**
+   * The interval width relative to the speedup at which to stop adding runs, overridden by the
+   * "speedup.precision" property.
+   */
+  public static final double PRECISION =
+      Double.parseDouble(System.getProperty("speedup.precision", "0.10"));
+
+  /** The minimum number of timed runs, overridden by the "speedup.runs.min" property. */
+  public static final int MIN_RUNS = Integer.getInteger("speedup.runs.min", 6);
+
+  /** The maximum number of timed runs, overridden by the "speedup.runs.max" property. */
+  public static final int MAX_RUNS = Integer.getInteger("speedup.runs.max", 12);
+
+  /** The seed used for bootstrap resampling, overridden by the "speedup.seed" property. */
+  public static final long SEED = Long.getLong("speedup.seed", 212);
+
+  /** The number of bootstrap resamples. */
+  public static final int RESAMPLES = 2000;
+
+  /** The file every comparison is appended to, overridden by the "speedup.report" property. */
+  public static final Path REPORT = Path.of(System.getProperty("speedup.report",
+      TestUtilities.ACTUAL_PATH.resolve("speedup-report.jsonl").toString()));
+
+  /** The runs for the first (slower) argument set. */
+  public final Benchmarker.Result baseline;
+
+  /** The runs for the second (faster) argument set. */
+  public final Benchmarker.Result candidate;
+
+  /** The minimum speedup required to pass. */
+  public final double minimum;
+
+  /** The ratio of the median baseline runtime to the median candidate runtime. */
+  private double speedup;
+
+  /** The lower bound of the confidence interval for the speedup. */
+  private double lower;
+
+  /** The upper bound of the confidence interval for the speedup. */
+  private double upper;
+
+  /** The p-value of the candidate being at least the minimum speedup faster. */
+  private double pValue;
+
+  /**
+   * Initializes a comparison without any runs.
+   *
+   * @param baseline the runs for the first (slower) argument set
+   * @param candidate the runs for the second (faster) argument set
+   * @param minimum the minimum speedup required to pass
+   */
+  private SpeedupComparison(Benchmarker.Result baseline, Benchmarker.Result candidate,
+      double minimum) {
+    this.baseline = baseline;
+    this.candidate = candidate;
+    this.minimum = minimum;
+  }
+
+  /**
+   * Compares the runtime of two argument sets with the default {@link #MINIMUM} speedup.
+   *
+   * @param label1 the label of the first (slower) argument set
+   * @param args1 the first argument set
+   * @param label2 the label of the second (faster) argument set
+   * @param args2 the second argument set
+   * @param warmRuns the number of warmup runs for each argument set
+   * @return the comparison results
+   */
+  public static SpeedupComparison compare(String label1, String[] args1, String label2,
+      String[] args2, int warmRuns) {
+    return compare(label1, args1, label2, args2, warmRuns, MINIMUM);
+  }
+
+  /**
+   * Compares the runtime of two argument sets, adding interleaved runs until the speedup is known
+   * precisely enough to decide whether it meets the minimum.
+   *
+   * @param label1 the label of the first (slower) argument set
+   * @param args1 the first argument set
+   * @param label2 the label of the second (faster) argument set
+   * @param args2 the second argument set
+   * @param warmRuns the number of warmup runs for each argument set
+   * @param minimum the minimum speedup required to pass
+   * @return the comparison results
+   */
+  public static SpeedupComparison compare(String label1, String[] args1, String label2,
+      String[] args2, int warmRuns, double minimum) {
+    Benchmarker.Result baseline = new Benchmarker.Result(label1, args1, warmRuns);
+    Benchmarker.Result candidate = new Benchmarker.Result(label2, args2, warmRuns);
+    SpeedupComparison comparison = new SpeedupComparison(baseline, candidate, minimum);
+
+    Benchmarker.extend(baseline, warmRuns);
+    Benchmarker.extend(candidate, warmRuns);
+
+    // interleave the runs so that any drift affects both argument sets equally
+    while (baseline.timeRuns() < MAX_RUNS) {
+      Benchmarker.extend(baseline, 1);
+      Benchmarker.extend(candidate, 1);
+
+      if (baseline.timeRuns() >= MIN_RUNS) {
+        comparison.calculate();
+
+        if (comparison.isDecided()) {
+          break;
+        }
+      }
+    }
+
+    comparison.calculate();
+    return comparison;
+  }
+
+  /**
+   * Recalculates the speedup, confidence interval, and p-value from the current runs.
+   */
+  private void calculate() {
+    long[] runs1 = baseline.timed();
+    long[] runs2 = candidate.timed();
+
+    double[] interval = Statistics.bootstrapRatio(runs1, runs2, CONFIDENCE, RESAMPLES,
+        new Random(SEED));
+
+    speedup = Statistics.median(runs1) / Statistics.median(runs2);
+    lower = interval[0];
+    upper = interval[1];
+    pValue = Statistics.mannWhitney(runs1, runs2, minimum);
+  }
+
+  /**
+   * Determines whether enough runs have been made. This is the case once the interval is tight
+   * relative to the speedup, when the comparison passes, or when the interval is entirely below
+   * the minimum.
+   *
+   * @return true if no more runs are necessary
+   */
+  private boolean isDecided() {
+    return (upper - lower) / speedup <= PRECISION || passed() || upper < minimum;
+  }
+
+  /**
+   * Returns whether the second argument set is faster than the first by at least the minimum
+   * speedup with the configured confidence.
+   *
+   * @return true if the lower bound of the confidence interval meets the minimum speedup and the
+   *   p-value is below the significance level
+   */
+  public boolean passed() {
+    return lower >= minimum && pValue <= 1 - CONFIDENCE;
+  }
+
+  /**
+   * Scales a timeout meant for the given number of runs of each argument set to the warmup runs
+   * plus the {@link #MAX_RUNS} timed runs a comparison may take.
+   *
+   * @param timeout the timeout for the original number of runs
+   * @param warmRuns the number of warmup runs for each argument set
+   * @param runs the original number of warmup and timed runs of each argument set
+   * @return the scaled timeout, which is never shorter than the original
+   */
+  public static Duration timeout(Duration timeout, int warmRuns, int runs) {
+    return timeout.multipliedBy(Math.max(runs, warmRuns + MAX_RUNS)).dividedBy(runs);
+  }
+
+  /**
+   * Returns the ratio of the median baseline runtime to the median candidate runtime.
+   *
+   * @return the speedup
+   */
+  public double speedup() {
+    return speedup;
+  }
+
+  /**
+   * Returns the lower bound of the confidence interval for the speedup.
+   *
+   * @return the lower bound
+   */
+  public double lower() {
+    return lower;
+  }
+
+  /**
+   * Returns the upper bound of the confidence interval for the speedup.
+   *
+   * @return the upper bound
+   */
+  public double upper() {
+    return upper;
+  }
+
+  /**
+   * Returns the p-value of the one-sided Mann-Whitney U test that the candidate is at least the
+   * minimum speedup faster than the baseline.
+   *
+   * @return the p-value
+   */
+  public double pValue() {
+    return pValue;
+  }
+
+  /**
+   * Returns this comparison as a single line of JSON.
+   *
+   * @return the JSON representation of this comparison
+   */
+  public String toJson() {
+    return String.format(Locale.ROOT, "{\"timestamp\": \"%s\", \"baseline\": {%s}, "
+        + "\"candidate\": {%s}, \"speedup\": %s, \"lower\": %s, \"upper\": %s, "
+        + "\"confidence\": %s, \"minimum\": %s, \"p\": %s, \"passed\": %b}",
+        Instant.now(), toJson(baseline), toJson(candidate), number("%.6f", speedup),
+        number("%.6f", lower), number("%.6f", upper), number("%.4f", CONFIDENCE),
+        number("%.4f", minimum), number("%.6f", pValue), passed());
+  }
+
+  /**
+   * Returns the members of a JSON object describing the benchmark result.
+   *
+   * @param result the result to describe
+   * @return the JSON object members (without the surrounding braces)
+   */
+  private static String toJson(Benchmarker.Result result) {
+    StringBuilder args = new StringBuilder();
+
+    for (String arg : result.args) {
+      args.append(args.length() == 0 ? "" : ", ");
+      args.append('"').append(arg.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+    }
+
+    return String.format(Locale.ROOT, "\"label\": \"%s\", \"args\": [%s], \"runs\": %d, "
+        + "\"median\": %s, \"mean\": %s, \"error\": %s",
+        result.label.replace("\\", "\\\\").replace("\"", "\\\""), args, result.timeRuns(),
+        number("%.0f", result.percentile(50)), number("%.0f", result.mean()),
+        number("%.0f", result.error()));
+  }
+
+  /**
+   * Formats a number for JSON output independent of the default locale, using null for values
+   * JSON does not support.
+   *
+   * @param format the format to use for finite values
+   * @param value the value to format
+   * @return the formatted value
+   */
+  private static String number(String format, double value) {
+    return Double.isFinite(value) ? String.format(Locale.ROOT, format, value) : "null";
+  }
+
+  /**
+   * Appends this comparison to the {@link #REPORT} file.
+   *
+   * @throws IOException if an I/O error occurs
+   */
+  public void report() throws IOException {
+    Files.createDirectories(REPORT.toAbsolutePath().getParent());
+    Files.writeString(REPORT, toJson() + System.lineSeparator(), StandardCharsets.UTF_8,
+        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+  }
+
+  /**
+   * Prints every run of both argument sets followed by the speedup and confidence interval.
+   */
+  public void print() {
+    long[] runs1 = baseline.runs();
+    long[] runs2 = candidate.runs();
+    double second = Duration.ofSeconds(1).toNanos();
+
+    String labelFormat = "%-6s    %10s    %10s%n";
+    String valueFormat = "%-6d    %10.6f    %10.6f%n";
+
+    System.out.printf("%n```%n");
+    System.out.printf(labelFormat, "Warmup", baseline.label, candidate.label);
+    for (int i = 0; i < baseline.warmRuns; i++) {
+      System.out.printf(valueFormat, i + 1, runs1[i] / second, runs2[i] / second);
+    }
+
+    System.out.println();
+    System.out.printf(labelFormat, "Timed", baseline.label, candidate.label);
+    for (int i = baseline.warmRuns; i < runs1.length; i++) {
+      System.out.printf(valueFormat, i + 1, runs1[i] / second, runs2[i] / second);
+    }
+
+    System.out.println();
+    System.out.printf("%10s:  %10.6f seconds (median)%n", baseline.label,
+        baseline.percentile(50) / second);
+    System.out.printf("%10s:  %10.6f seconds (median)%n%n", candidate.label,
+        candidate.percentile(50) / second);
+    System.out.printf("%10s: x%10.6f [%.4f, %.4f] at %.0f%% confidence%n", "Speedup", speedup,
+        lower, upper, CONFIDENCE * 100);
+    System.out.printf("%10s: x%10.6f (p = %.6f)%n", "Minimum", minimum, pValue);
+    System.out.printf("```%n");
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s is x%.2f faster than %s (%.0f%% confidence interval x%.2f to x%.2f, "
+        + "minimum x%.2f, p = %.4f, %d runs each)", candidate.label, speedup, baseline.label,
+        CONFIDENCE * 100, lower, upper, minimum, pValue, baseline.timeRuns());
+  }
+}
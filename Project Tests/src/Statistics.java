@@ -0,0 +1,340 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Summary statistics and significance tests used by the benchmarking code. All methods work on
+ * arrays of nanosecond runtimes (or any other measurement) and never modify the array they are
+ * given.
+ *
+ * @author CS 212 Software Development
+ * @author University of San Francisco
+ * @version Spring 2020
+ */
+public class Statistics {
+
+  /** The confidence level used for error bars, matching what JMH reports. */
+  public static final double CONFIDENCE = 0.999;
+
+  /**
+   * Calculates the arithmetic mean of the values.
+   *
+   * @param values the values to summarize
+   * @return the mean, or {@link Double#NaN} if there are no values
+   */
+  public static double mean(long[] values) {
+    if (values.length == 0) {
+      return Double.NaN;
+    }
+
+    double total = 0;
+
+    for (long value : values) {
+      total += value;
+    }
+
+    return total / values.length;
+  }
+
+  /**
+   * Calculates the sample standard deviation of the values.
+   *
+   * @param values the values to summarize
+   * @return the sample standard deviation, or {@link Double#NaN} if there are fewer than 2 values
+   */
+  public static double stdev(long[] values) {
+    if (values.length < 2) {
+      return Double.NaN;
+    }
+
+    double mean = mean(values);
+    double total = 0;
+
+    for (long value : values) {
+      total += (value - mean) * (value - mean);
+    }
+
+    return Math.sqrt(total / (values.length - 1));
+  }
+
+  /**
+   * Calculates the half-width of the {@link #CONFIDENCE} confidence interval around the mean using
+   * the Student t distribution. This is the "error" column reported by JMH.
+   *
+   * @param values the values to summarize
+   * @return the half-width of the confidence interval, or {@link Double#NaN} if there are fewer
+   *   than 2 values
+   */
+  public static double error(long[] values) {
+    if (values.length < 2) {
+      return Double.NaN;
+    }
+
+    double t = studentT(1 - (1 - CONFIDENCE) / 2, values.length - 1);
+    return t * stdev(values) / Math.sqrt(values.length);
+  }
+
+  /**
+   * Calculates a percentile of the values, linearly interpolating between the closest ranks.
+   *
+   * @param values the values to summarize
+   * @param percentile the percentile between 0 and 100 (inclusive)
+   * @return the percentile value, or {@link Double#NaN} if there are no values
+   */
+  public static double percentile(long[] values, double percentile) {
+    if (values.length == 0) {
+      return Double.NaN;
+    }
+
+    long[] sorted = Arrays.copyOf(values, values.length);
+    Arrays.sort(sorted);
+
+    double rank = percentile / 100.0 * (sorted.length - 1);
+    int lower = (int) Math.floor(rank);
+    int upper = (int) Math.ceil(rank);
+
+    return sorted[lower] + (rank - lower) * (sorted[upper] - sorted[lower]);
+  }
+
+  /**
+   * Calculates the median of the values.
+   *
+   * @param values the values to summarize
+   * @return the median, or {@link Double#NaN} if there are no values
+   */
+  public static double median(long[] values) {
+    return percentile(values, 50);
+  }
+
+  /**
+   * Calculates the inverse of the cumulative Student t distribution. Uses bisection over the
+   * cumulative distribution function, which is plenty fast for the handful of calls made per
+   * benchmark.
+   *
+   * @param probability the cumulative probability between 0 and 1 (exclusive)
+   * @param freedom the degrees of freedom
+   * @return the value t such that P(T &lt;= t) = probability
+   */
+  public static double studentT(double probability, int freedom) {
+    if (probability < 0.5) {
+      return -studentT(1 - probability, freedom);
+    }
+
+    double low = 0;
+    double high = 1;
+
+    while (studentCDF(high, freedom) < probability) {
+      high *= 2;
+    }
+
+    for (int i = 0; i < 100; i++) {
+      double middle = (low + high) / 2;
+
+      if (studentCDF(middle, freedom) < probability) {
+        low = middle;
+      } else {
+        high = middle;
+      }
+    }
+
+    return (low + high) / 2;
+  }
+
+  /**
+   * Calculates the cumulative Student t distribution.
+   *
+   * @param t the value to evaluate
+   * @param freedom the degrees of freedom
+   * @return the probability P(T &lt;= t)
+   */
+  public static double studentCDF(double t, int freedom) {
+    double x = freedom / (freedom + t * t);
+    double tail = 0.5 * incompleteBeta(x, freedom / 2.0, 0.5);
+    return t >= 0 ? 1 - tail : tail;
+  }
+
+  /**
+   * Calculates the cumulative standard normal distribution.
+   *
+   * @param z the value to evaluate
+   * @return the probability P(Z &lt;= z)
+   */
+  public static double normalCDF(double z) {
+    // Abramowitz and Stegun 7.1.26, accurate to about 1.5e-7
+    double x = Math.abs(z) / Math.sqrt(2);
+    double t = 1 / (1 + 0.3275911 * x);
+    double y = t * (0.254829592 + t * (-0.284496736
+        + t * (1.421413741 + t * (-1.453152027 + t * 1.061405429))));
+    double erf = 1 - y * Math.exp(-x * x);
+    return z >= 0 ? 0.5 * (1 + erf) : 0.5 * (1 - erf);
+  }
+
+  /**
+   * Performs a one-sided Mann-Whitney U test of whether the first values tend to be larger than the
+   * second values scaled by a factor. For runtimes, this tests whether the first runs are more than
+   * the factor slower than the second runs. Uses the normal approximation with a continuity
+   * correction, which is reasonable once each sample has at least 5 values.
+   *
+   * @param values1 the first values
+   * @param values2 the second values
+   * @param factor the factor to scale the second values by before comparing
+   * @return the p-value of the test
+   */
+  public static double mannWhitney(long[] values1, long[] values2, double factor) {
+    double u = 0;
+
+    for (long value1 : values1) {
+      for (long value2 : values2) {
+        double scaled = value2 * factor;
+
+        if (value1 > scaled) {
+          u += 1;
+        } else if (value1 == scaled) {
+          u += 0.5;
+        }
+      }
+    }
+
+    double n1 = values1.length;
+    double n2 = values2.length;
+    double mean = n1 * n2 / 2;
+    double deviation = Math.sqrt(n1 * n2 * (n1 + n2 + 1) / 12);
+
+    if (deviation == 0) {
+      return Double.NaN;
+    }
+
+    return 1 - normalCDF((u - mean - 0.5) / deviation);
+  }
+
+  /**
+   * Calculates a percentile bootstrap confidence interval for the ratio of the median of the first
+   * values to the median of the second values. For runtimes, this is the speedup of the second
+   * runs over the first runs.
+   *
+   * @param values1 the first values
+   * @param values2 the second values
+   * @param confidence the confidence level between 0 and 1 (exclusive)
+   * @param resamples the number of bootstrap resamples
+   * @param random the source of randomness, seeded for reproducible intervals
+   * @return the lower and upper bound of the confidence interval
+   */
+  public static double[] bootstrapRatio(long[] values1, long[] values2, double confidence,
+      int resamples, Random random) {
+    double[] ratios = new double[resamples];
+    long[] sample1 = new long[values1.length];
+    long[] sample2 = new long[values2.length];
+
+    for (int i = 0; i < resamples; i++) {
+      for (int j = 0; j < sample1.length; j++) {
+        sample1[j] = values1[random.nextInt(values1.length)];
+      }
+
+      for (int j = 0; j < sample2.length; j++) {
+        sample2[j] = values2[random.nextInt(values2.length)];
+      }
+
+      ratios[i] = median(sample1) / median(sample2);
+    }
+
+    Arrays.sort(ratios);
+
+    double alpha = (1 - confidence) / 2;
+    int lower = (int) Math.floor(alpha * (resamples - 1));
+    int upper = (int) Math.ceil((1 - alpha) * (resamples - 1));
+
+    return new double[] {ratios[lower], ratios[upper]};
+  }
+
+  /**
+   * Calculates the regularized incomplete beta function using a continued fraction.
+   *
+   * @param x the upper limit of integration between 0 and 1 (inclusive)
+   * @param a the first shape parameter
+   * @param b the second shape parameter
+   * @return the regularized incomplete beta function
+   */
+  private static double incompleteBeta(double x, double a, double b) {
+    if (x <= 0) {
+      return 0;
+    }
+
+    if (x >= 1) {
+      return 1;
+    }
+
+    double front = Math.exp(logGamma(a + b) - logGamma(a) - logGamma(b)
+        + a * Math.log(x) + b * Math.log(1 - x));
+
+    // the continued fraction converges quickly only on one side of the mean
+    if (x < (a + 1) / (a + b + 2)) {
+      return front * betaFraction(x, a, b) / a;
+    }
+
+    return 1 - front * betaFraction(1 - x, b, a) / b;
+  }
+
+  /**
+   * Evaluates the continued fraction for the incomplete beta function using Lentz's method.
+   *
+   * @param x the upper limit of integration
+   * @param a the first shape parameter
+   * @param b the second shape parameter
+   * @return the value of the continued fraction
+   */
+  private static double betaFraction(double x, double a, double b) {
+    double tiny = 1e-300;
+    double c = 1;
+    double d = 1 - (a + b) * x / (a + 1);
+    d = 1 / (Math.abs(d) < tiny ? tiny : d);
+    double result = d;
+
+    for (int m = 1; m <= 300; m++) {
+      int m2 = 2 * m;
+
+      double step = m * (b - m) * x / ((a + m2 - 1) * (a + m2));
+      d = 1 + step * d;
+      c = 1 + step / c;
+      d = 1 / (Math.abs(d) < tiny ? tiny : d);
+      c = Math.abs(c) < tiny ? tiny : c;
+      result *= d * c;
+
+      step = -(a + m) * (a + b + m) * x / ((a + m2) * (a + m2 + 1));
+      d = 1 + step * d;
+      c = 1 + step / c;
+      d = 1 / (Math.abs(d) < tiny ? tiny : d);
+      c = Math.abs(c) < tiny ? tiny : c;
+
+      double delta = d * c;
+      result *= delta;
+
+      if (Math.abs(delta - 1) < 1e-12) {
+        break;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Calculates the natural logarithm of the gamma function using the Lanczos approximation.
+   *
+   * @param x the value to evaluate (must be positive)
+   * @return the natural logarithm of the gamma function
+   */
+  private static double logGamma(double x) {
+    double[] coefficients = {76.18009172947146, -86.50532032941677, 24.01409824083091,
+        -1.231739572450155, 0.1208650973866179e-2, -0.5395239384953e-5};
+
+    double y = x;
+    double temp = x + 5.5;
+    temp -= (x + 0.5) * Math.log(temp);
+
+    double series = 1.000000000190015;
+
+    for (double coefficient : coefficients) {
+      series += coefficient / ++y;
+    }
+
+    return -temp + Math.log(2.5066282746310005 * series / x);
+  }
+}
@@ -0,0 +1,228 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.MethodOrderer.Alphanumeric;
+import org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.parallel.ResourceAccessMode;
+import org.junit.jupiter.api.parallel.ResourceLock;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * JUnit tests for streaming the query file with the {@value #STREAM} flag, where query lines are
+ * read, cleaned and stemmed, searched, and written by separate stages connected by bounded queues.
+ * The results must still be written in sorted order by query, so the output must be exactly the
+ * same as without streaming and the same expected files are used.
+ *
+ * The memory test searches generated query files of increasing size in a separate JVM with a small
+ * fixed maximum heap size, and checks that the larger query file still finishes. Reading every
+ * query line or keeping every result in memory runs out of heap instead.
+ *
+ * @author CS 212 Software Development
+ * @author University of San Francisco
+ * @version Spring 2020
+ * @see CorpusGenerator#generateQueries(Path, int)
+ */
+@TestMethodOrder(Alphanumeric.class)
+public class StreamOutputTest {
+
+  /** The flag used to stream the query file through a bounded pipeline. */
+  public static final String STREAM = "-stream";
+
+  /** The number of lines in the smaller generated query file, overridden by "stream.lines". */
+  public static final int LINES = Integer.getInteger("stream.lines", 20_000);
+
+  /** How many times larger the larger generated query file is. */
+  public static final int GROWTH = 50;
+
+  /**
+   * The maximum heap size of the forked JVM used for the memory test, overridden by the
+   * "stream.heap" property. It must be large enough for the index of the rfcs subdirectory.
+   */
+  public static final String HEAP = System.getProperty("stream.heap", "64m");
+
+  /**
+   * Streams the query file and tests the search output. Designed to be used inside a JUnit test.
+   *
+   * @param subdir the output subdirectory to use
+   * @param input the input path to use
+   * @param query the query file to use for search
+   * @param exact whether to perform exact or partial search
+   * @param threads the number of worker threads to use
+   */
+  public static void test(String subdir, Path input, String query, boolean exact, int threads) {
+    String type = exact ? "exact" : "partial";
+    String filename = TestUtilities.outputFileName("search-" + type, input);
+
+    Path actual = TestUtilities.ACTUAL_PATH.resolve("stream-" + threads + "-" + filename);
+    Path expected = TestUtilities.EXPECTED_PATH.resolve(subdir).resolve(filename).normalize();
+
+    String[] args = {"-path", input.normalize().toString(), "-query",
+        TestUtilities.QUERY_INPUT.resolve(query).toString(), "-results",
+        actual.normalize().toString(), "-threads", Integer.toString(threads), STREAM,
+        exact ? "-exact" : ""};
+
+    TestUtilities.checkOutput(args, actual.normalize(), expected);
+  }
+
+  /**
+   * Generates a query file with the given number of lines, unless one was already generated by a
+   * previous run.
+   *
+   * @param lines the number of query lines
+   * @return the generated query file
+   * @throws IOException if unable to generate the query file
+   */
+  public static synchronized Path generated(int lines) throws IOException {
+    Path query = TestUtilities.ACTUAL_PATH.resolve("stream").resolve("queries-" + lines + ".txt");
+
+    if (!Files.exists(query)) {
+      new CorpusGenerator(212).generateQueries(query, lines);
+    }
+
+    return query;
+  }
+
+  /**
+   * Runs {@link Driver} in a separate JVM with the {@link #HEAP} maximum heap size and the same
+   * class path, exiting as soon as any thread runs out of memory.
+   *
+   * @param args the arguments to run
+   * @param log where to write the console output of the forked JVM
+   * @return the exit code of the forked JVM
+   * @throws IOException if unable to start the forked JVM
+   * @throws InterruptedException if interrupted while waiting for the forked JVM
+   */
+  public static int fork(String[] args, Path log) throws IOException, InterruptedException {
+    List<String> command = new ArrayList<>();
+    command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+    command.addAll(List.of("-Xmx" + HEAP, "-XX:+ExitOnOutOfMemoryError", "-cp",
+        System.getProperty("java.class.path"), Driver.class.getName()));
+    command.addAll(List.of(TestUtilities.withExtraArgs(args)));
+
+    Process process = new ProcessBuilder(command).redirectErrorStream(true)
+        .redirectOutput(log.toFile()).start();
+
+    if (!process.waitFor(ThreadRuntimeTest.LONG_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+      process.destroyForcibly();
+      fail("Timed out after " + ThreadRuntimeTest.LONG_TIMEOUT + ". See " + log + " for details.");
+    }
+
+    return process.exitValue();
+  }
+
+  /**
+   * Tests the search output when streaming the query file.
+   */
+  @Nested
+  @TestMethodOrder(OrderAnnotation.class)
+  @ResourceLock(value = TestUtilities.RUNTIME_LOCK, mode = ResourceAccessMode.READ)
+  public class A_StreamSearchTest {
+
+    /**
+     * Tests the search output for the simple subdirectory.
+     *
+     * @param exact whether to perform exact or partial search
+     */
+    @Order(1)
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    public void testSimple(boolean exact) {
+      test(exact ? "search-exact" : "search-partial", TestUtilities.TEXT_INPUT.resolve("simple"),
+          "simple.txt", exact, 1);
+    }
+
+    /**
+     * Tests the search output for the rfcs subdirectory with several worker threads, so that
+     * later queries may finish before earlier ones.
+     *
+     * @param exact whether to perform exact or partial search
+     */
+    @Order(2)
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    public void testRfcs(boolean exact) {
+      test(exact ? "search-exact" : "search-partial", TestUtilities.TEXT_INPUT.resolve("rfcs"),
+          "letters.txt", exact, 5);
+    }
+
+    /**
+     * Tests the partial search output for the entire input directory.
+     *
+     * @param threads the number of worker threads to use
+     */
+    @Order(3)
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 5})
+    public void testTextPartial(int threads) {
+      test("search-partial", TestUtilities.TEXT_INPUT, "complex.txt", false, threads);
+    }
+
+    /**
+     * Tests the exact search output for the entire input directory.
+     *
+     * @param threads the number of worker threads to use
+     */
+    @Order(4)
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 5})
+    public void testTextExact(int threads) {
+      test("search-exact", TestUtilities.TEXT_INPUT, "complex.txt", true, threads);
+    }
+  }
+
+  /**
+   * Tests the memory use when streaming large query files.
+   */
+  @Nested
+  @TestMethodOrder(OrderAnnotation.class)
+  @ResourceLock(TestUtilities.RUNTIME_LOCK)
+  public class B_StreamMemoryTest {
+
+    /**
+     * Tests that exact search of a query file {@link #GROWTH} times larger still finishes with the
+     * same fixed maximum heap size when streaming. The smaller query file is searched first to make
+     * sure the heap is large enough for the index itself.
+     *
+     * @throws IOException if unable to generate the query files or run the forked JVM
+     * @throws InterruptedException if interrupted while waiting for the forked JVM
+     */
+    @Order(1)
+    @Test
+    public void testFixedHeap() throws IOException, InterruptedException {
+      Path smaller = generated(LINES);
+      Path larger = generated(LINES * GROWTH);
+      String input = TestUtilities.TEXT_INPUT.resolve("rfcs").toString();
+      String threads = Integer.toString(ThreadRuntimeTest.THREADS);
+
+      String[] args1 = {"-path", input, "-query", smaller.toString(), "-exact", STREAM,
+          "-threads", threads, "-results", smaller.resolveSibling("results-1.json").toString()};
+      String[] args2 = {"-path", input, "-query", larger.toString(), "-exact", STREAM,
+          "-threads", threads, "-results", larger.resolveSibling("results-2.json").toString()};
+
+      System.out.println();
+      System.out.printf("### Testing Streaming with -Xmx%s...%n", HEAP);
+
+      int code1 = fork(args1, smaller.resolveSibling("fork-1.log"));
+      assertEquals(0, code1, () -> String.format(
+          "Unable to search %d query lines with -Xmx%s, so the heap is too small for the index. "
+              + "Increase the \"stream.heap\" property. See %s for details.",
+          LINES, HEAP, smaller.resolveSibling("fork-1.log")));
+
+      int code2 = fork(args2, larger.resolveSibling("fork-2.log"));
+      assertEquals(0, code2, () -> String.format(
+          "Unable to search %d query lines with -Xmx%s, even though %d lines succeeded. "
+              + "See %s for details.",
+          LINES * GROWTH, HEAP, LINES, larger.resolveSibling("fork-2.log")));
+    }
+  }
+}
@@ -0,0 +1,151 @@
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.parallel.ResourceAccessMode;
+import org.junit.jupiter.api.parallel.ResourceLock;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Repeated output tests for the multithreaded code. Each run builds and searches the index with a
+ * randomly chosen input, search type, and number of worker threads, often more threads than there
+ * are processors, and checks the search results against the expected files. Thread safety problems
+ * tend to show up as output that only differs occasionally, so many runs are needed. The runs are
+ * chosen from a fixed seed, so a failing run can be reproduced with the same "stress.seed".
+ *
+ * If the "crawl.snapshot" property is set, crawls of the local snapshot are chosen too.
+ *
+ * @author CS 212 Software Development
+ * @author University of San Francisco
+ * @version Spring 2020
+ * @see LocalWebServer
+ */
+@TestMethodOrder(OrderAnnotation.class)
+@ResourceLock(value = TestUtilities.RUNTIME_LOCK, mode = ResourceAccessMode.READ)
+public class StressTest {
+
+  /** The number of runs, overridden by the "stress.runs" property. */
+  public static final int RUNS = Integer.getInteger("stress.runs", 20);
+
+  /** The seed used to choose the runs, overridden by the "stress.seed" property. */
+  public static final long SEED = Long.getLong("stress.seed", 212);
+
+  /** The maximum number of worker threads, overridden by the "stress.threads" property. */
+  public static final int MAX_THREADS = Integer.getInteger("stress.threads",
+      Math.max(8, 2 * Runtime.getRuntime().availableProcessors()));
+
+  /** The input subdirectories and query files to choose from, where "text" is every input. */
+  private static final String[][] INPUTS = {
+      {"simple", "simple.txt"}, {"rfcs", "letters.txt"}, {"guten", "letters.txt"},
+      {"text", "complex.txt"}};
+
+  /** The crawls to choose from, with the link, limit, and query file. */
+  private static final String[][] CRAWLS = {
+      {"https://www.cs.usfca.edu/~cs212/birds/birds.html", "50", "letters.txt"},
+      {"https://www.cs.usfca.edu/~cs212/rfcs/index.html", "6", "complex.txt"}};
+
+  /**
+   * Chooses the runs from the seed.
+   *
+   * @return the run number, input or link, query file, crawl limit (or 0), search type, and
+   *   number of worker threads of each run
+   */
+  public static Stream<Arguments> runs() {
+    Random random = new Random(SEED);
+    List<Arguments> runs = new ArrayList<>();
+    boolean crawl = LocalWebServer.isEnabled();
+
+    for (int run = 1; run <= RUNS; run++) {
+      boolean exact = random.nextBoolean();
+      int threads = 2 + random.nextInt(MAX_THREADS - 1);
+
+      if (crawl && random.nextInt(3) == 0) {
+        String[] choice = CRAWLS[random.nextInt(CRAWLS.length)];
+        runs.add(Arguments.of(run, choice[0], choice[2], Integer.parseInt(choice[1]), exact,
+            threads));
+      } else {
+        String[] choice = INPUTS[random.nextInt(INPUTS.length)];
+        runs.add(Arguments.of(run, choice[0], choice[1], 0, exact, threads));
+      }
+    }
+
+    return runs.stream();
+  }
+
+  /**
+   * Builds and searches the index, and checks the search results against the expected output.
+   *
+   * @param run the run number
+   * @param input the input subdirectory or link to crawl
+   * @param query the query file to use for search
+   * @param limit the crawl limit, or 0 to use the input subdirectory
+   * @param exact whether to perform exact or partial search
+   * @param threads the number of worker threads to use
+   */
+  @Order(1)
+  @ParameterizedTest(name = "{0}: {1} {2} exact={4} threads={5}")
+  @MethodSource("runs")
+  public void testSearchStress(int run, String input, String query, int limit, boolean exact,
+      int threads) {
+    String type = exact ? "exact" : "partial";
+
+    if (limit == 0) {
+      Path path = input.equals("text") ? TestUtilities.TEXT_INPUT
+          : TestUtilities.TEXT_INPUT.resolve(input);
+      String filename = TestUtilities.outputFileName("search-" + type, path);
+
+      Path actual = TestUtilities.ACTUAL_PATH.resolve(filename).normalize();
+      Path expected = TestUtilities.EXPECTED_PATH.resolve("search-" + type).resolve(filename)
+          .normalize();
+
+      String[] args = {
+          "-path", path.normalize().toString(),
+          "-query", TestUtilities.QUERY_INPUT.resolve(query).toString(),
+          "-results", actual.toString(),
+          "-threads", Integer.toString(threads),
+          exact ? "-exact" : ""};
+
+      check(args, actual, expected, ThreadOutputTest.TIMEOUT);
+      return;
+    }
+
+    String filename = String.format("results-%s-%s.json", type, CrawlOutputTest.getName(input));
+
+    Path actual = TestUtilities.ACTUAL_PATH.resolve(filename).normalize();
+    Path expected = LocalWebServer.expected(
+        TestUtilities.EXPECTED_PATH.resolve("search-crawl").resolve(filename).normalize());
+
+    String[] args = {
+        "-url", LocalWebServer.link(input),
+        "-limit", Integer.toString(limit),
+        "-threads", Integer.toString(threads),
+        "-query", TestUtilities.QUERY_INPUT.resolve(query).toString(),
+        "-results", actual.normalize().toString(),
+        exact ? "-exact" : ""};
+
+    check(args, actual, expected, CrawlOutputTest.TIMEOUT);
+  }
+
+  /**
+   * Checks the output within the timeout. Always runs {@link Driver}, even if {@link DriverCache}
+   * is enabled, since repeating a run is the point of this test.
+   *
+   * @param args arguments to pass to {@link Driver}
+   * @param actual path to actual output
+   * @param expected path to expected output
+   * @param timeout the timeout to use
+   */
+  private static void check(String[] args, Path actual, Path expected, Duration timeout) {
+    Assertions.assertTimeoutPreemptively(timeout, () -> {
+      TestUtilities.checkOutput(args, actual, expected, false);
+    });
+  }
+}
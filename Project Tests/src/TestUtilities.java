@@ -1,14 +1,18 @@
-import java.io.BufferedReader;
-import java.io.File;
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
-import java.util.regex.Matcher;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Assertions;
 
 /**
@@ -36,6 +40,57 @@ public class TestUtilities {
   /** Location of the query input files. */
   public static final Path QUERY_INPUT = Path.of("input", "query");
 
+  /**
+   * Whether to compare output files by JSON structure only, ignoring whitespace and formatting.
+   * Enabled by setting the "compare.json" property to true.
+   *
+   * @see JsonComparator
+   */
+  public static final boolean COMPARE_JSON = Boolean.getBoolean("compare.json");
+
+  /**
+   * Whether to require output files to be byte-for-byte identical to the expected files, including
+   * whitespace and line endings. Enabled by setting the "compare.exact" property to true, and takes
+   * precedence over {@link #COMPARE_JSON}.
+   */
+  public static final boolean COMPARE_EXACT = Boolean.getBoolean("compare.exact");
+
+  /** The JUnit configuration parameter that enables parallel execution. */
+  public static final String PARALLEL_PARAMETER = "junit.jupiter.execution.parallel.enabled";
+
+  /**
+   * Whether tests may run concurrently, set by the standard JUnit
+   * "junit.jupiter.execution.parallel.enabled" configuration parameter either as a system property
+   * or in the junit-platform.properties file. When enabled, every output check writes all of its
+   * output files to its own subdirectory of {@link #ACTUAL_PATH}.
+   */
+  public static final boolean PARALLEL = isParallel();
+
+  /** The flags followed by an output file, which are isolated when {@link #PARALLEL} is enabled. */
+  public static final List<String> OUTPUT_FLAGS =
+      List.of("-index", "-counts", "-results", "-save", "-metrics");
+
+  /**
+   * The resource lock shared by tests that may run concurrently with each other and held
+   * exclusively by the runtime tests, so nothing else runs while they are being timed.
+   */
+  public static final String RUNTIME_LOCK = "runtime";
+
+  /** The resource lock held by tests that write output files to the default locations. */
+  public static final String DEFAULT_OUTPUT_LOCK = "default-output";
+
+  /**
+   * Extra arguments added to every run of {@link Driver}, set by the "driver.args" property. Used to
+   * check that an alternative mode, such as a different index storage flag, produces exactly the
+   * same output as the default mode against the same expected files. For example, running with
+   * "-Xmx256m -Ddriver.args=-offheap" checks search results for an index larger than the heap.
+   */
+  public static final String[] EXTRA_ARGS = System.getProperty("driver.args", "").isBlank()
+      ? new String[0] : System.getProperty("driver.args").strip().split("\\s+");
+
+  /** The number of isolated output directories created so far. */
+  private static final AtomicInteger ISOLATED = new AtomicInteger();
+
   /** Timeout to use when testing exceptions. */
   public static final Duration TIMEOUT = Duration.ofSeconds(30);
 
@@ -79,77 +134,121 @@ public class TestUtilities {
    *
    * @param path1 path to first file to compare with
    * @param path2 path to second file to compare with
-   * @return positive value if two files are equal, negative value if not
+   * @return positive value if two files are equal, negative line number of the first difference if
+   *   not
    *
    * @throws IOException if I/O error occurs
+   * @see LineComparator
    */
   public static int checkFiles(Path path1, Path path2) throws IOException {
-    Charset charset = StandardCharsets.UTF_8;
-    String separator = Matcher.quoteReplacement(File.separator);
-
-    // used to output line mismatch
-    int count = 0;
-
-    try (BufferedReader reader1 = Files.newBufferedReader(path1, charset);
-         BufferedReader reader2 = Files.newBufferedReader(path2, charset);) {
-      String line1 = reader1.readLine();
-      String line2 = reader2.readLine();
-
-      while (true) {
-        count++;
-
-        // compare lines until we hit a null (i.e. end of file)
-        if (line1 != null && line2 != null) {
-          // use consistent path separators
-          line1 = line1.replaceAll(separator, "/");
-          line2 = line2.replaceAll(separator, "/");
-
-          // remove trailing spaces
-          line1 = line1.strip();
-          line2 = line2.strip();
-
-          // check if lines are equal
-          if (!line1.equals(line2)) {
-            return -count;
-          }
-
-          // read next lines if we get this far
-          line1 = reader1.readLine();
-          line2 = reader2.readLine();
-        } else {
-          // discard extra blank lines at end of reader1
-          while (line1 != null && line1.isBlank()) {
-            line1 = reader1.readLine();
-          }
-
-          // discard extra blank lines at end of reader2
-          while (line2 != null && line2.isBlank()) {
-            line2 = reader2.readLine();
-          }
-
-          if (line1 == line2) {
-            // only true if both are null, otherwise one file had
-            // extra non-empty lines
-            return count;
-          } else {
-            // extra blank lines found in one file
-            return -count;
-          }
+    LineComparator.Difference difference = LineComparator.compare(path1, path2);
+    return difference == null ? 1 : -difference.line;
+  }
+
+  /**
+   * Compares the actual and expected output files. By default, the files are compared line-by-line
+   * and the JSON structure is only compared to explain a difference. If {@link #COMPARE_EXACT} is
+   * enabled, the bytes are compared instead. If {@link #COMPARE_JSON} is enabled, only the JSON
+   * structure is compared.
+   *
+   * @param actual path to actual output
+   * @param expected path to expected output
+   * @return a description of the difference, or null if the files are considered equal
+   * @throws IOException if I/O error occurs
+   */
+  public static String compareFiles(Path actual, Path expected) throws IOException {
+    if (COMPARE_EXACT) {
+      long offset = Files.mismatch(actual, expected);
+      return offset < 0 ? null : "Byte difference detected at offset: " + offset + " ("
+          + locate(actual, offset) + ").";
+    }
+
+    if (COMPARE_JSON) {
+      return JsonComparator.compare(actual, expected);
+    }
+
+    LineComparator.Difference difference = LineComparator.compare(actual, expected);
+
+    if (difference == null) {
+      return null;
+    }
+
+    String message = "Difference detected on line: " + difference.line + ", column: "
+        + difference.column + ".";
+    String structure = JsonComparator.compare(actual, expected);
+
+    if (structure == null) {
+      return message + " The JSON is equal, so only the whitespace or formatting differs.";
+    }
+
+    return message + System.lineSeparator() + "    " + structure;
+  }
+
+  /**
+   * Finds the line and column of a byte offset in a file.
+   *
+   * @param path the file
+   * @param offset the byte offset
+   * @return the line and column of the offset, starting at 1
+   * @throws IOException if I/O error occurs
+   */
+  private static String locate(Path path, long offset) throws IOException {
+    int line = 1;
+    long start = 0;
+
+    try (InputStream input = new BufferedInputStream(Files.newInputStream(path))) {
+      for (long i = 0; i < offset; i++) {
+        int value = input.read();
+
+        if (value < 0) {
+          break;
+        }
+
+        if (value == '\n') {
+          line++;
+          start = i + 1;
         }
       }
     }
+
+    return "line " + line + ", column " + (offset - start + 1);
   }
 
   /**
    * Checks whether {@link Driver} generates the expected output without any exceptions. Will print
    * the stack trace if an exception occurs. Designed to be used within an unit test. If the test
    * was successful, deletes the actual file. Otherwise, keeps the file for debugging purposes.
+   * If {@link #PARALLEL} is enabled, the actual file and every other output file are moved to
+   * their own subdirectory first.
    *
    * @param args arguments to pass to {@link Driver}
    * @param actual path to actual output
    * @param expected path to expected output
    */
   public static void checkOutput(String[] args, Path actual, Path expected) {
+    checkOutput(args, actual, expected, true);
+  }
+
+  /**
+   * Checks whether {@link Driver} generates the expected output without any exceptions, optionally
+   * running {@link Driver} even if {@link DriverCache} is enabled. Used by tests that run the same
+   * arguments again on purpose to check that the output stays consistent.
+   *
+   * @param args arguments to pass to {@link Driver}
+   * @param actual path to actual output
+   * @param expected path to expected output
+   * @param reuse whether the output may be reused from an earlier run
+   * @see #checkOutput(String[], Path, Path)
+   */
+  public static void checkOutput(String[] args, Path actual, Path expected, boolean reuse) {
+    args = withExtraArgs(args);
+
+    if (PARALLEL) {
+      Path isolated = isolate(actual);
+      args = isolate(replace(args, actual, isolated), isolated.getParent());
+      actual = isolated;
+    }
+
     try {
       // Remove old actual file (if exists), setup directories if needed
       Files.deleteIfExists(actual);
@@ -157,7 +256,12 @@ public class TestUtilities {
 
       // Generate actual output file
       System.out.printf("%nRunning: %s...%n", actual.toString());
-      Driver.main(args);
+
+      if (DriverCache.ENABLED && reuse) {
+        DriverCache.run(args);
+      } else {
+        Driver.main(args);
+      }
 
       // Double-check we can read the expected output file
       if (!Files.isReadable(expected)) {
@@ -172,15 +276,18 @@ public class TestUtilities {
       }
 
       // Compare the two files
-      int count = checkFiles(actual, expected);
+      String message = compareFiles(actual, expected);
 
-      if (count <= 0) {
-        String message = "Difference detected on line: " + -count + ".";
+      if (message != null) {
         Assertions.fail(errorMessage(args, actual, expected, message));
       }
 
       // At this stage, the files were the same and we can delete actual.
       Files.deleteIfExists(actual);
+
+      if (PARALLEL) {
+        deleteDirectory(actual.getParent());
+      }
     } catch (Exception e) {
       StringWriter writer = new StringWriter();
       e.printStackTrace(new PrintWriter(writer));
@@ -190,6 +297,126 @@ public class TestUtilities {
     }
   }
 
+  /**
+   * Adds the {@link #EXTRA_ARGS} to the end of the arguments.
+   *
+   * @param args arguments to pass to {@link Driver}
+   * @return the arguments followed by the extra arguments
+   */
+  public static String[] withExtraArgs(String[] args) {
+    if (EXTRA_ARGS.length == 0) {
+      return args;
+    }
+
+    String[] combined = Arrays.copyOf(args, args.length + EXTRA_ARGS.length);
+    System.arraycopy(EXTRA_ARGS, 0, combined, args.length, EXTRA_ARGS.length);
+    return combined;
+  }
+
+  /**
+   * Determines whether parallel execution is enabled the same way JUnit does, where a system
+   * property takes precedence over the junit-platform.properties file on the class path.
+   *
+   * @return true if parallel execution is enabled
+   */
+  private static boolean isParallel() {
+    String value = System.getProperty(PARALLEL_PARAMETER);
+
+    if (value == null) {
+      try (InputStream in = TestUtilities.class.getClassLoader()
+          .getResourceAsStream("junit-platform.properties")) {
+        if (in != null) {
+          Properties properties = new Properties();
+          properties.load(in);
+          value = properties.getProperty(PARALLEL_PARAMETER);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    return Boolean.parseBoolean(value == null ? null : value.strip());
+  }
+
+  /**
+   * Returns a unique location for an actual output file, so tests running concurrently never
+   * write to the same file.
+   *
+   * @param actual path to actual output
+   * @return path to the same file name in a unique subdirectory of {@link #ACTUAL_PATH}
+   */
+  public static Path isolate(Path actual) {
+    String subdir = String.format("parallel-%04d", ISOLATED.incrementAndGet());
+    return ACTUAL_PATH.resolve(subdir).resolve(actual.getFileName());
+  }
+
+  /**
+   * Moves every output file in the arguments to the same directory, keeping its file name. An
+   * output file that is also used as an input elsewhere in the arguments, such as a saved index
+   * that is loaded and saved again, is left unchanged.
+   *
+   * @param args arguments to pass to {@link Driver}
+   * @param directory the directory to move the output files to
+   * @return a copy of the arguments with the output files moved
+   * @see #OUTPUT_FLAGS
+   */
+  public static String[] isolate(String[] args, Path directory) {
+    String[] copy = args.clone();
+    List<String> original = List.of(args);
+
+    for (int i = 0; i < copy.length - 1; i++) {
+      String value = args[i + 1];
+
+      if (OUTPUT_FLAGS.contains(args[i]) && !value.startsWith("-")
+          && Collections.frequency(original, value) == 1) {
+        copy[i + 1] = directory.resolve(Path.of(value).getFileName()).toString();
+      }
+    }
+
+    return copy;
+  }
+
+  /**
+   * Deletes an isolated output directory and any files left in it.
+   *
+   * @param directory the directory to delete
+   * @throws IOException if unable to delete the files
+   */
+  private static void deleteDirectory(Path directory) throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return;
+    }
+
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        Files.deleteIfExists(file);
+      }
+    }
+
+    Files.deleteIfExists(directory);
+  }
+
+  /**
+   * Replaces every argument that refers to the original path with the replacement path.
+   *
+   * @param args arguments to pass to {@link Driver}
+   * @param original the path to replace
+   * @param replacement the path to use instead
+   * @return a copy of the arguments with the path replaced
+   */
+  public static String[] replace(String[] args, Path original, Path replacement) {
+    String[] copy = args.clone();
+
+    for (int i = 0; i < copy.length; i++) {
+      if (copy[i].equals(original.toString())
+          || copy[i].equals(original.normalize().toString())) {
+        copy[i] = replacement.toString();
+      }
+    }
+
+    return copy;
+  }
+
   /**
    * Checks whether {@link Driver} will run without generating any exceptions. Will print the stack
    * trace if an exception occurs. Designed to be used within an unit test.
@@ -197,6 +424,8 @@ public class TestUtilities {
    * @param args arguments to pass to {@link Driver}
    */
   public static void checkExceptions(String[] args) {
+    args = withExtraArgs(args);
+
     try {
       System.out.printf("%nRunning Driver %s...%n", String.join(" ", args));
       Driver.main(args);
@@ -3,6 +3,8 @@ import org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.parallel.ResourceAccessMode;
+import org.junit.jupiter.api.parallel.ResourceLock;
 
 /**
  * Tests that multithreading code runs without throwing exceptions.
@@ -12,6 +14,7 @@ import org.junit.jupiter.api.TestMethodOrder;
  * @version Spring 2020
  */
 @TestMethodOrder(OrderAnnotation.class)
+@ResourceLock(value = TestUtilities.RUNTIME_LOCK, mode = ResourceAccessMode.READ)
 public class ThreadExceptionsTest {
   /** Amount of time to wait for an individual test to finish. */
   private static final Duration TIMEOUT = Duration.ofMinutes(3);
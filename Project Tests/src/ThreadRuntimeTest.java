@@ -1,18 +1,15 @@
 import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import static org.junit.jupiter.api.Assertions.fail;
-import java.io.OutputStream;
-import java.io.PrintStream;
-import java.io.PrintWriter;
-import java.io.StringWriter;
 import java.nio.file.Path;
 import java.time.Duration;
-import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.RepeatedTest;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.parallel.ResourceLock;
 
 /**
  * This suite of JUnit tests estimate how efficiently the multithreaded versus single threaded code
@@ -26,13 +23,14 @@ import org.junit.jupiter.api.TestMethodOrder;
  * @version Spring 2020
  */
 @TestMethodOrder(OrderAnnotation.class)
+@ResourceLock(TestUtilities.RUNTIME_LOCK)
 public class ThreadRuntimeTest {
 
   /** The number of warmup runs when benchmarking. */
   public static final int WARM_RUNS = 4;
 
-  /** The number of timed runs when benchmarking. */
-  public static final int TIME_RUNS = 6;
+  /** The minimum number of timed runs when benchmarking. */
+  public static final int TIME_RUNS = SpeedupComparison.MIN_RUNS;
 
   /** The default number of threads to use when benchmarking. */
   public static final int THREADS = 3;
@@ -43,11 +41,26 @@ public class ThreadRuntimeTest {
   /** The timeout for long runs (involving multiple runs of Driver). */
   public static final Duration LONG_TIMEOUT = Duration.ofMinutes(5);
 
-  /** The format string used to report speedup. */
-  public static final String SPEEDUP_FORMAT = "%s is %.2f seconds faster than %d workers.";
+  /**
+   * The timeout for comparing the runtime of two argument sets, scaled up from the
+   * {@link #LONG_TIMEOUT} for {@link #WARM_RUNS} and {@link #TIME_RUNS} runs to the most runs a
+   * comparison may take.
+   */
+  public static final Duration SPEEDUP_TIMEOUT =
+      SpeedupComparison.timeout(LONG_TIMEOUT, WARM_RUNS, WARM_RUNS + TIME_RUNS);
 
   /**
-   * Tests that the inverted index output remains consistent when repeated.
+   * Whether to print per-phase metrics after each comparison, enabled by setting the
+   * "driver.metrics" property to true. Requires a {@link Driver} that supports the -metrics flag.
+   */
+  public static final boolean METRICS = Boolean.getBoolean("driver.metrics");
+
+  /** The format string used to report a missing speedup. */
+  public static final String SPEEDUP_FORMAT = "Not enough speedup versus %s: %s";
+
+  /**
+   * Tests that the inverted index output remains consistent when repeated. Always runs
+   * {@link Driver}, even if {@link DriverCache} is enabled.
    */
   @Order(1)
   @RepeatedTest(5)
@@ -61,11 +74,14 @@ public class ThreadRuntimeTest {
         "-index", actual.toString(),
         "-threads", Integer.toString(THREADS)};
 
-    TestUtilities.testOutputTimeout(args, actual, expected, TIMEOUT);
+    assertTimeoutPreemptively(TIMEOUT, () -> {
+      TestUtilities.checkOutput(args, actual, expected, false);
+    });
   }
 
   /**
-   * Tests that the search result output remains consistent when repeated.
+   * Tests that the search result output remains consistent when repeated. Always runs
+   * {@link Driver}, even if {@link DriverCache} is enabled.
    */
   @Order(2)
   @RepeatedTest(5)
@@ -80,7 +96,9 @@ public class ThreadRuntimeTest {
         "-results", actual.toString(),
         "-threads", Integer.toString(THREADS)};
 
-    TestUtilities.testOutputTimeout(args, actual, expected, TIMEOUT);
+    assertTimeoutPreemptively(TIMEOUT, () -> {
+      TestUtilities.checkOutput(args, actual, expected, false);
+    });
   }
 
   /**
@@ -103,9 +121,10 @@ public class ThreadRuntimeTest {
     TestUtilities.testExceptionTimeout(args2, TIMEOUT);
 
     // then test the timing
-    assertTimeoutPreemptively(LONG_TIMEOUT, () -> {
-      double result = compare("1 Worker", args1, String.valueOf(THREADS) + " Workers", args2);
-      assertTrue(result > 0, () -> String.format(SPEEDUP_FORMAT, "1 worker", -result, THREADS));
+    assertTimeoutPreemptively(SPEEDUP_TIMEOUT, () -> {
+      SpeedupComparison result =
+          compare("1 Worker", args1, String.valueOf(THREADS) + " Workers", args2);
+      assertTrue(result.passed(), () -> String.format(SPEEDUP_FORMAT, "1 worker", result));
     });
   }
 
@@ -130,9 +149,10 @@ public class ThreadRuntimeTest {
     TestUtilities.testExceptionTimeout(args2, TIMEOUT);
 
     // then test the timing
-    assertTimeoutPreemptively(LONG_TIMEOUT, () -> {
-      double result = compare("1 Worker", args1, String.valueOf(THREADS) + " Workers", args2);
-      assertTrue(result > 0, () -> String.format(SPEEDUP_FORMAT, "1 worker", -result, THREADS));
+    assertTimeoutPreemptively(SPEEDUP_TIMEOUT, () -> {
+      SpeedupComparison result =
+          compare("1 Worker", args1, String.valueOf(THREADS) + " Workers", args2);
+      assertTrue(result.passed(), () -> String.format(SPEEDUP_FORMAT, "1 worker", result));
     });
   }
 
@@ -156,9 +176,10 @@ public class ThreadRuntimeTest {
     TestUtilities.testExceptionTimeout(args2, TIMEOUT);
 
     // then test the timing
-    assertTimeoutPreemptively(LONG_TIMEOUT, () -> {
-      double result = compare("Single", args1, String.valueOf(THREADS) + " Workers", args2);
-      assertTrue(result > 0, () -> String.format(SPEEDUP_FORMAT, "0 workers", -result, THREADS));
+    assertTimeoutPreemptively(SPEEDUP_TIMEOUT, () -> {
+      SpeedupComparison result =
+          compare("Single", args1, String.valueOf(THREADS) + " Workers", args2);
+      assertTrue(result.passed(), () -> String.format(SPEEDUP_FORMAT, "0 workers", result));
     });
   }
 
@@ -183,60 +204,42 @@ public class ThreadRuntimeTest {
     TestUtilities.testExceptionTimeout(args2, TIMEOUT);
 
     // then test the timing
-    assertTimeoutPreemptively(LONG_TIMEOUT, () -> {
-      double result = compare("Single", args1, String.valueOf(THREADS) + " Workers", args2);
-      assertTrue(result > 0, () -> String.format(SPEEDUP_FORMAT, "0 workers", -result, THREADS));
+    assertTimeoutPreemptively(SPEEDUP_TIMEOUT, () -> {
+      SpeedupComparison result =
+          compare("Single", args1, String.valueOf(THREADS) + " Workers", args2);
+      assertTrue(result.passed(), () -> String.format(SPEEDUP_FORMAT, "0 workers", result));
     });
   }
 
   /**
    * Compares the runtime using two different sets of arguments. Outputs the runtimes to the console
-   * just in case there are any anomalies.
+   * just in case there are any anomalies, and appends the comparison to the
+   * {@link SpeedupComparison#REPORT} file. If {@link #METRICS} is enabled, also runs each set of
+   * arguments once more with the -metrics flag and prints the per-phase metrics.
    *
    * @param label1 the label of the first argument set
    * @param args1 the first argument set
    * @param label2 the label of the second argument set
    * @param args2 the second argument set
-   * @return the runtime difference between the first and second set of arguments
+   * @return the speedup of the second set of arguments over the first
+   * @throws Exception if unable to write the report or collect the metrics
+   * @see SpeedupComparison
+   * @see DriverMetrics
    */
-  public static double compare(String label1, String[] args1, String label2, String[] args2) {
-    long[] runs1 = benchmark(args1);
-    long[] runs2 = benchmark(args2);
-
-    long total1 = 0;
-    long total2 = 0;
-
-    String labelFormat = "%-6s    %10s    %10s%n";
-    String valueFormat = "%-6d    %10.6f    %10.6f%n";
+  public static SpeedupComparison compare(String label1, String[] args1, String label2,
+      String[] args2) throws Exception {
+    SpeedupComparison comparison =
+        SpeedupComparison.compare(label1, args1, label2, args2, WARM_RUNS);
 
-    System.out.printf("%n```%n");
-    System.out.printf(labelFormat, "Warmup", label1, label2);
-    for (int i = 0; i < WARM_RUNS; i++) {
-      System.out.printf(valueFormat, i + 1, (double) runs1[i] / Duration.ofSeconds(1).toMillis(),
-          (double) runs2[i] / Duration.ofSeconds(1).toMillis());
-    }
+    comparison.print();
+    comparison.report();
 
-    System.out.println();
-    System.out.printf(labelFormat, "Timed", label1, label2);
-    for (int i = WARM_RUNS; i < WARM_RUNS + TIME_RUNS; i++) {
-      total1 += runs1[i];
-      total2 += runs2[i];
-      System.out.printf(valueFormat, i + 1, (double) runs1[i] / Duration.ofSeconds(1).toMillis(),
-          (double) runs2[i] / Duration.ofSeconds(1).toMillis());
+    if (METRICS) {
+      DriverMetrics.collect(label1, args1).print();
+      DriverMetrics.collect(label2, args2).print();
     }
 
-    double average1 = (double) total1 / TIME_RUNS;
-    double average2 = (double) total2 / TIME_RUNS;
-
-    System.out.println();
-    System.out.printf("%10s:  %10.6f seconds%n", label1,
-        average1 / Duration.ofSeconds(1).toMillis());
-    System.out.printf("%10s:  %10.6f seconds%n%n", label2,
-        average2 / Duration.ofSeconds(1).toMillis());
-    System.out.printf("%10s: x%10.6f %n", "Speedup", average1 / average2);
-    System.out.printf("```%n%n");
-
-    return average1 - average2;
+    return comparison;
   }
 
   /**
@@ -244,54 +247,13 @@ public class ThreadRuntimeTest {
    * timing of every run to allow of visual inspection.
    *
    * @param args the arguments to run
-   * @return an array of all the runtimes, including warmup runs and timed runs
+   * @return an array of all the runtimes in milliseconds, including warmup runs and timed runs
+   * @see Benchmarker#benchmark(String, String[], int, int)
    */
   public static long[] benchmark(String[] args) {
-    long[] runs = new long[WARM_RUNS + TIME_RUNS];
-
-    Instant start;
-    Duration elapsed;
-
-    // supress all console output for the warmup and timed runs
-    PrintStream systemOut = System.out;
-    PrintStream systemErr = System.err;
-
-    PrintStream nullStream = new PrintStream(OutputStream.nullOutputStream());
-    System.setOut(nullStream);
-    System.setErr(nullStream);
-
-    try {
-      for (int i = 0; i < WARM_RUNS; i++) {
-        start = Instant.now();
-
-        Driver.main(args);
-
-        elapsed = Duration.between(start, Instant.now());
-        runs[i] = elapsed.toMillis();
-      }
-
-      for (int i = 0; i < TIME_RUNS; i++) {
-        start = Instant.now();
-
-        Driver.main(args);
-
-        elapsed = Duration.between(start, Instant.now());
-        runs[i + WARM_RUNS] = elapsed.toMillis();
-      }
-    } catch (Exception e) {
-      StringWriter writer = new StringWriter();
-      e.printStackTrace(new PrintWriter(writer));
-
-      String debug = String.format("%nArguments:%n    [%s]%nException:%n    %s%n",
-          String.join(" ", args), writer.toString());
-      fail(debug);
-    } finally {
-      // restore console output
-      System.setOut(systemOut);
-      System.setErr(systemErr);
-    }
-
-    return runs;
+    return Arrays.stream(
+        Benchmarker.benchmark(String.join(" ", args), args, WARM_RUNS, TIME_RUNS).runs())
+        .map(TimeUnit.NANOSECONDS::toMillis).toArray();
   }
 
 }
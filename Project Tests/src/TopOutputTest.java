@@ -0,0 +1,249 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.MethodOrderer.Alphanumeric;
+import org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.parallel.ResourceAccessMode;
+import org.junit.jupiter.api.parallel.ResourceLock;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * JUnit tests for limiting the search results of each query to the top results with the
+ * {@value #TOP} flag. The output must be exactly the same as the full search results with only the
+ * first results of each query kept, so the expected files are created by truncating the existing
+ * expected search results.
+ *
+ * @author CS 212 Software Development
+ * @author University of San Francisco
+ * @version Spring 2020
+ */
+@TestMethodOrder(Alphanumeric.class)
+public class TopOutputTest {
+
+  /** The flag used to limit the number of results per query. */
+  public static final String TOP = "-top";
+
+  /**
+   * Creates the expected output for the top results by keeping only the first results of each
+   * query in the full expected search results.
+   *
+   * @param expected the full expected search results
+   * @param top the number of results to keep per query
+   * @return the path to the truncated expected search results
+   * @throws UncheckedIOException if unable to read or write the files
+   */
+  public static synchronized Path truncate(Path expected, int top) {
+    Path truncated = TestUtilities.ACTUAL_PATH.resolve("expected-top")
+        .resolve(top + "-" + expected.getFileName()).normalize();
+
+    try (BufferedReader reader = Files.newBufferedReader(expected, StandardCharsets.UTF_8)) {
+      Files.createDirectories(truncated.getParent());
+
+      try (BufferedWriter writer = Files.newBufferedWriter(truncated, StandardCharsets.UTF_8)) {
+        List<List<String>> results = new ArrayList<>();
+        List<String> result = null;
+        boolean array = false;
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+          String stripped = line.strip();
+
+          if (!array) {
+            // the start of an array of results for a query
+            array = stripped.endsWith("[");
+            writer.write(line);
+            writer.newLine();
+          } else if (result != null) {
+            result.add(line);
+
+            if (stripped.startsWith("}")) {
+              results.add(result);
+              result = null;
+            }
+          } else if (stripped.startsWith("{")) {
+            result = new ArrayList<>();
+            result.add(line);
+          } else if (stripped.startsWith("]")) {
+            write(writer, results.subList(0, Math.min(top, results.size())));
+            results.clear();
+            array = false;
+            writer.write(line);
+            writer.newLine();
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    return truncated;
+  }
+
+  /**
+   * Writes the lines of each result, with a comma after every result except the last.
+   *
+   * @param writer the writer to use
+   * @param results the lines of each result to write
+   * @throws IOException if unable to write the lines
+   */
+  private static void write(BufferedWriter writer, List<List<String>> results)
+      throws IOException {
+    for (int i = 0; i < results.size(); i++) {
+      List<String> lines = results.get(i);
+
+      for (int j = 0; j < lines.size(); j++) {
+        String line = lines.get(j);
+
+        if (j == lines.size() - 1) {
+          line = line.stripTrailing();
+          line = line.endsWith(",") ? line.substring(0, line.length() - 1) : line;
+          line = i < results.size() - 1 ? line + "," : line;
+        }
+
+        writer.write(line);
+        writer.newLine();
+      }
+    }
+  }
+
+  /**
+   * Generates the arguments to use for this test case. Designed to be used inside a JUnit test.
+   *
+   * @param subdir the output subdirectory to use
+   * @param input the input path to use
+   * @param query the query file to use for search
+   * @param exact whether to perform exact or partial search
+   * @param top the number of results to keep per query
+   */
+  public static void test(String subdir, Path input, String query, boolean exact, int top) {
+    String type = exact ? "exact" : "partial";
+    String filename = TestUtilities.outputFileName("search-" + type, input);
+
+    Path actual = TestUtilities.ACTUAL_PATH.resolve(top + "-" + filename).normalize();
+    Path expected = truncate(
+        TestUtilities.EXPECTED_PATH.resolve(subdir).resolve(filename).normalize(), top);
+
+    String[] args = {"-path", input.normalize().toString(), "-query",
+        TestUtilities.QUERY_INPUT.resolve(query).toString(), "-results",
+        actual.normalize().toString(), TOP, Integer.toString(top), exact ? "-exact" : ""};
+
+    TestUtilities.checkOutput(args, actual, expected);
+  }
+
+  /**
+   * Junit tests for the top search results for exact search.
+   */
+  @Nested
+  @TestMethodOrder(OrderAnnotation.class)
+  @ResourceLock(value = TestUtilities.RUNTIME_LOCK, mode = ResourceAccessMode.READ)
+  public class A_ExactTopTest {
+
+    /** The default subdir for this nested class. */
+    public final String subdir = "search-exact";
+
+    /** The default search mode for this nested class. */
+    public final boolean exact = true;
+
+    /**
+     * Tests the top search results for the simple directory.
+     *
+     * @param top the number of results to keep per query
+     */
+    @Order(1)
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3})
+    public void testSimpleDirectory(int top) {
+      test(subdir, TestUtilities.TEXT_INPUT.resolve("simple"), "simple.txt", exact, top);
+    }
+
+    /**
+     * Tests the top search results for the guten subdirectory.
+     */
+    @Order(2)
+    @Test
+    public void testGutenDirectory() {
+      test(subdir, TestUtilities.TEXT_INPUT.resolve("guten"), "letters.txt", exact, 3);
+    }
+
+    /**
+     * Tests the top search results for all of the text files.
+     *
+     * @param top the number of results to keep per query
+     */
+    @Order(3)
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10})
+    public void testText(int top) {
+      test(subdir, TestUtilities.TEXT_INPUT, "complex.txt", exact, top);
+    }
+  }
+
+  /**
+   * Junit tests for the top search results for partial search.
+   */
+  @Nested
+  @TestMethodOrder(OrderAnnotation.class)
+  @ResourceLock(value = TestUtilities.RUNTIME_LOCK, mode = ResourceAccessMode.READ)
+  public class B_PartialTopTest {
+
+    /** The default subdir for this nested class. */
+    public final String subdir = "search-partial";
+
+    /** The default search mode for this nested class. */
+    public final boolean exact = false;
+
+    /**
+     * Tests the top search results for the simple directory.
+     *
+     * @param top the number of results to keep per query
+     */
+    @Order(1)
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3})
+    public void testSimpleDirectory(int top) {
+      test(subdir, TestUtilities.TEXT_INPUT.resolve("simple"), "simple.txt", exact, top);
+    }
+
+    /**
+     * Tests the top search results for the rfcs subdirectory, where single letter queries match
+     * nearly every file.
+     */
+    @Order(2)
+    @Test
+    public void testRfcDirectory() {
+      test(subdir, TestUtilities.TEXT_INPUT.resolve("rfcs"), "letters.txt", exact, 2);
+    }
+
+    /**
+     * Tests the top search results for the guten subdirectory.
+     */
+    @Order(3)
+    @Test
+    public void testGutenDirectory() {
+      test(subdir, TestUtilities.TEXT_INPUT.resolve("guten"), "letters.txt", exact, 3);
+    }
+
+    /**
+     * Tests the top search results for all of the text files.
+     *
+     * @param top the number of results to keep per query
+     */
+    @Order(4)
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10})
+    public void testText(int top) {
+      test(subdir, TestUtilities.TEXT_INPUT, "complex.txt", exact, top);
+    }
+  }
+}